@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.internal.UIInternals.JavaScriptInvocation;
+import com.vaadin.flow.server.VaadinSession;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Benchmarks for the server-side hot paths of {@link ComboBox} with in-memory
+ * data providers. Run with {@code -prof gc} to get the allocation rate per
+ * operation.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ComboBoxBenchmark {
+
+    private static final String[] FILTERS = { "1", "12", "123", "" };
+
+    @Param({ "1000", "100000", "1000000" })
+    private int itemCount;
+
+    private List<String> items;
+    private ComboBox<String> comboBox;
+    private UI ui;
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        items = IntStream.range(0, itemCount).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList());
+
+        ui = new UI();
+        ui.getInternals().setSession(new VaadinSession(null) {
+            @Override
+            public boolean hasLock() {
+                return true;
+            }
+        });
+        // The default item filter uses the locale of the current UI
+        UI.setCurrent(ui);
+        comboBox = new ComboBox<>();
+        ui.add(comboBox);
+        comboBox.setItems(items);
+        roundTrip();
+    }
+
+    @Benchmark
+    public void setDataProvider() {
+        comboBox.setItems(items);
+        roundTrip();
+    }
+
+    @Benchmark
+    public String setValue() {
+        comboBox.setValue(items.get(nextIndex(1)));
+        return comboBox.getElement().getProperty("value");
+    }
+
+    @Benchmark
+    public void setRequestedRange() {
+        ClientCallables.call(comboBox, "setRequestedRange",
+                nextIndex(comboBox.getPageSize()), comboBox.getPageSize(), "");
+        roundTrip();
+    }
+
+    @Benchmark
+    public void filter() {
+        ClientCallables.call(comboBox, "setRequestedRange", 0,
+                comboBox.getPageSize(), FILTERS[nextIndex(1) % FILTERS.length]);
+        roundTrip();
+    }
+
+    @Benchmark
+    public JsonObject generateLabel() {
+        JsonObject json = Json.createObject();
+        comboBox.getDataGenerator().generateData(items.get(nextIndex(1)),
+                json);
+        return json;
+    }
+
+    private int nextIndex(int step) {
+        index = (index + step) % itemCount;
+        return index;
+    }
+
+    /*
+     * Sends the pending changes like a response to the client would, and
+     * confirms the updates like the connector does.
+     */
+    private void roundTrip() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        for (JavaScriptInvocation invocation : ui.getInternals()
+                .dumpPendingJavaScriptInvocations()) {
+            if (invocation.getExpression().contains("$connector.confirm")) {
+                List<Object> parameters = invocation.getParameters();
+                ClientCallables.call(comboBox, "confirmUpdate",
+                        parameters.get(parameters.size() - 1));
+            }
+        }
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+    }
+}
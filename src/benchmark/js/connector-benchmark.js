@@ -0,0 +1,160 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Micro-benchmarks for comboBoxConnector.js, run with plain Node.js without a
+ * browser: node src/benchmark/js/connector-benchmark.js [filter]
+ *
+ * The connector is loaded with a stub <vaadin-combo-box> which only keeps the
+ * state the connector touches, so the numbers only include the time spent in
+ * the connector itself.
+ */
+const {
+  PAGE_SIZE,
+  createContext,
+  createComboBox,
+  createItems
+} = require('../../test/js/connector-harness');
+
+const benchmarks = {};
+
+/*
+ * Each benchmark returns an object with an optional setup, which is run
+ * before each invocation without being measured, and the measured run.
+ */
+benchmarks.set = pageCount => {
+  const items = createItems(0, pageCount * PAGE_SIZE);
+  let comboBox;
+  return {
+    setup: () => comboBox = createComboBox(createContext()),
+    run: () => comboBox.$connector.set(0, items)
+  };
+};
+
+benchmarks.updateData = pageCount => {
+  const itemCount = pageCount * PAGE_SIZE;
+  const comboBox = createComboBox(createContext());
+  comboBox.filteredItems = createItems(0, itemCount);
+  // Refresh one item of each page
+  const updated = [];
+  for (let i = PAGE_SIZE - 1; i < itemCount; i += PAGE_SIZE) {
+    updated.push({ key: String(i), label: 'Updated ' + i });
+  }
+  return {
+    run: () => comboBox.$connector.updateData(updated)
+  };
+};
+
+benchmarks.confirm = pageCount => {
+  const items = createItems(0, pageCount * PAGE_SIZE);
+  let comboBox;
+  return {
+    setup: () => {
+      comboBox = createComboBox(createContext());
+      comboBox.size = items.length;
+      for (let page = 0; page < pageCount; page++) {
+        comboBox.dataProvider({ page: page, pageSize: PAGE_SIZE, filter: '' },
+          () => {});
+      }
+      comboBox.$connector.set(0, items);
+    },
+    run: () => comboBox.$connector.confirm(1)
+  };
+};
+
+benchmarks.commitPage = pageCount => {
+  const items = createItems(0, pageCount * PAGE_SIZE);
+  let comboBox;
+  return {
+    setup: () => {
+      comboBox = createComboBox(createContext());
+      comboBox.size = items.length;
+      comboBox.$connector.set(0, items);
+    },
+    // Pages which are already in the cache are committed right away
+    run: () => {
+      for (let page = 0; page < pageCount; page++) {
+        comboBox.dataProvider({ page: page, pageSize: PAGE_SIZE, filter: '' },
+          () => {});
+      }
+    }
+  };
+};
+
+benchmarks.clientSideFilter = pageCount => {
+  const items = createItems(0, pageCount * PAGE_SIZE);
+  const comboBox = createComboBox(createContext());
+  comboBox._clientSideFilter = true;
+  comboBox.pageSize = items.length;
+  comboBox.size = items.length;
+  comboBox.$connector.set(0, items);
+  comboBox.dataProvider({ page: 0, pageSize: items.length, filter: '' },
+    () => {});
+  comboBox.$connector.confirm(1);
+  const filters = ['1', '12', '123', ''];
+  let i = 0;
+  return {
+    run: () => {
+      comboBox.filter = filters[i++ % filters.length];
+      comboBox.dataProvider(
+        { page: 0, pageSize: items.length, filter: comboBox.filter },
+        () => {});
+    }
+  };
+};
+
+const measure = function (benchmark, minTime) {
+  const time = () => {
+    if (benchmark.setup) {
+      benchmark.setup();
+    }
+    const start = process.hrtime.bigint();
+    benchmark.run();
+    return Number(process.hrtime.bigint() - start);
+  };
+
+  // Warm up
+  const warmupEnd = Date.now() + minTime;
+  while (Date.now() < warmupEnd) {
+    time();
+  }
+
+  let total = 0;
+  let count = 0;
+  const end = Date.now() + minTime;
+  while (Date.now() < end) {
+    total += time();
+    count++;
+  }
+  return total / count / 1000;
+};
+
+const pad = (value, width) => String(value).padStart(width);
+
+const run = function (nameFilter) {
+  const pageCounts = [1, 10, 100, 1000];
+  console.log(pad('Benchmark', 18) + pad('Pages', 8) + pad('Items', 10)
+    + pad('us/op', 14));
+  Object.keys(benchmarks)
+    .filter(name => !nameFilter || name.indexOf(nameFilter) > -1)
+    .forEach(name => pageCounts.forEach(pageCount => {
+      const result = measure(benchmarks[name](pageCount), 500);
+      console.log(pad(name, 18) + pad(pageCount, 8)
+        + pad(pageCount * PAGE_SIZE, 10) + pad(result.toFixed(2), 14));
+    }));
+};
+
+run(process.argv[2]);
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import com.vaadin.flow.component.ComponentEvent;
+
+/**
+ * Event fired when the circuit breaker guarding the data provider queries of
+ * a {@link ComboBox} changes its state. The circuit is opened when the
+ * queries keep timing out or failing, after which the combo box shows the
+ * results cached from earlier queries without querying the data provider for
+ * a while.
+ *
+ * @param <T>
+ *            the type of the items in the combo box
+ * @author Vaadin Ltd
+ * @see ComboBox#setFetchTimeout(java.time.Duration)
+ */
+public class CircuitBreakerEvent<T> extends ComponentEvent<ComboBox<T>> {
+
+    /**
+     * The state of the circuit breaker.
+     */
+    public enum State {
+        /**
+         * The data provider is queried normally.
+         */
+        CLOSED,
+
+        /**
+         * The data provider is not queried, the cached results are used
+         * instead.
+         */
+        OPEN,
+
+        /**
+         * The data provider is queried again after having been open, to find
+         * out whether it has recovered.
+         */
+        HALF_OPEN;
+    }
+
+    private final State state;
+
+    /**
+     * Creates a new event.
+     *
+     * @param source
+     *            the combo box
+     * @param fromClient
+     *            <code>true</code> if the event originated from the client
+     * @param state
+     *            the new state of the circuit breaker
+     */
+    public CircuitBreakerEvent(ComboBox<T> source, boolean fromClient,
+            State state) {
+        super(source, fromClient);
+        this.state = state;
+    }
+
+    /**
+     * Gets the new state of the circuit breaker.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+}
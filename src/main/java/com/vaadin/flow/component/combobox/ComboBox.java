@@ -16,15 +16,24 @@
 package com.vaadin.flow.component.combobox;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.DetachEvent;
 import com.vaadin.flow.component.HasSize;
 import com.vaadin.flow.component.HasValidation;
 import com.vaadin.flow.component.ItemLabelGenerator;
@@ -37,21 +46,26 @@ import com.vaadin.flow.data.provider.ArrayUpdater.Update;
 import com.vaadin.flow.data.provider.CallbackDataProvider;
 import com.vaadin.flow.data.provider.CompositeDataGenerator;
 import com.vaadin.flow.data.provider.DataCommunicator;
-import com.vaadin.flow.data.provider.DataKeyMapper;
+import com.vaadin.flow.data.provider.DataGenerator;
 import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.provider.ListDataProvider;
 import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
 import com.vaadin.flow.data.renderer.Renderer;
 import com.vaadin.flow.data.renderer.Rendering;
+import com.vaadin.flow.data.renderer.TemplateRenderer;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.function.SerializableBiPredicate;
 import com.vaadin.flow.function.SerializableConsumer;
 import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.function.ValueProvider;
 import com.vaadin.flow.internal.JsonUtils;
 import com.vaadin.flow.shared.Registration;
 
 import elemental.json.Json;
+import elemental.json.JsonArray;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
 
 /**
@@ -112,6 +126,38 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         public Stream<T> fetchItems(String filter, int offset, int limit);
     }
 
+    /**
+     * A callback method for fetching items with keyset paging. Instead of an
+     * offset, the callback is provided with the sort key of the last item of
+     * the previous page, so that a database can seek to the first item of the
+     * page through an index, e.g. with
+     * {@code WHERE name > :lastKey ORDER BY name LIMIT :limit}.
+     *
+     * @param <T>
+     *            item (bean) type in ComboBox
+     * @param <K>
+     *            the type of the sort keys
+     */
+    @FunctionalInterface
+    public interface KeysetFetchItemsCallback<T, K> extends Serializable {
+
+        /**
+         * Returns a stream of items that match the given filter and come after
+         * the given sort key, ordered by their sort keys, limiting the results
+         * with the given limit.
+         *
+         * @param filter
+         *            a non-null filter string
+         * @param lastKey
+         *            the sort key of the item before the first fetched item,
+         *            or <code>null</code> to fetch from the first item
+         * @param limit
+         *            the fetched item count
+         * @return stream of items
+         */
+        public Stream<T> fetchItems(String filter, K lastKey, int limit);
+    }
+
     private class CustomValueRegistration implements Registration {
 
         private Registration delegate;
@@ -143,20 +189,28 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
 
         @Override
         public void set(int start, List<JsonValue> items) {
-            enqueue("$connector.set", start,
-                    items.stream().collect(JsonUtils.asArray()));
+            JsonArray array = items.stream().collect(JsonUtils.asArray());
+            itemsPushed(array);
+            enqueue("$connector.set", start, array);
         }
 
         @Override
         public void clear(int start, int length) {
-            // NO-OP
+            // The client only drops items when it holds a limited window of
+            // pages or the requested range was cut, otherwise the cleared
+            // range is about to be reset anyway
+            if (getRetainedPageCount() > 0 || requestedRangeCut) {
+                enqueue("$connector.clear", start, length);
+            }
         }
 
         @Override
         public void commit(int updateId) {
             enqueue("$connector.confirm", updateId);
+            long start = System.nanoTime();
             queue.forEach(Runnable::run);
             queue.clear();
+            metrics.updateCommitted(System.nanoTime() - start);
         }
 
         private void enqueue(String name, Serializable... arguments) {
@@ -164,6 +218,153 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         }
     }
 
+    /**
+     * Data generator which takes the generated data of the items from the
+     * shared item data cache when one is set, unless the items are rendered
+     * as components.
+     */
+    private final class SharedDataGenerator implements DataGenerator<T> {
+
+        @Override
+        public void generateData(T item, JsonObject jsonObject) {
+            if (sharedItemDataCache == null
+                    || renderer instanceof ComponentRenderer) {
+                dataGenerator.generateData(item, jsonObject);
+            } else {
+                if (!sharedItemDataVerified) {
+                    // Fails fast when another combo box has cached the data
+                    // of the items shown in a different way
+                    sharedItemDataVerified = sharedItemDataCache.verify(item,
+                            dataGenerator);
+                }
+                sharedItemDataCache.generateData(item, jsonObject,
+                        dataGenerator);
+            }
+        }
+
+        @Override
+        public void refreshData(T item) {
+            dataGenerator.refreshData(item);
+        }
+
+        @Override
+        public void destroyData(T item) {
+            dataGenerator.destroyData(item);
+        }
+
+        @Override
+        public void destroyAllData() {
+            dataGenerator.destroyAllData();
+        }
+    }
+
+    /**
+     * Data communicator that informs the key mapper about the items it
+     * activates, so that the key of the selected item is released only when
+     * nothing else is using it. It also reports the data provider queries to
+     * the metrics.
+     */
+    private final class ComboBoxDataCommunicator extends DataCommunicator<T> {
+
+        private ComboBoxDataCommunicator() {
+            // No lambdas referring to the combo box in the arguments, JDK 8
+            // compiles them incorrectly in a constructor of an inner class
+            super(new SharedDataGenerator(), arrayUpdater,
+                    ComboBox.this::updateData, getElement().getNode());
+            setKeyMapper(keyMapper);
+        }
+
+        @Override
+        protected int getDataProviderSize() {
+            if (isFilterTooShort() || isItemsResourceUsed()) {
+                return 0;
+            }
+            long start = System.nanoTime();
+            int size;
+            if (isFilteredIncrementally()) {
+                size = incrementalFilter.filter(filterText).size();
+            } else if (isFetchGuarded()) {
+                size = fetchGuard.size(filterText,
+                        () -> super.getDataProviderSize());
+            } else {
+                size = super.getDataProviderSize();
+            }
+            long nanos = System.nanoTime() - start;
+            metrics.sizeQueried(nanos, size);
+            QueryTracer.trace(ComboBox.this, QueryTracer.SIZE, lastFilter, 0,
+                    0, size, nanos);
+            return size;
+        }
+
+        @Override
+        protected Stream<T> fetchFromProvider(int offset, int limit) {
+            if (isFilterTooShort() || isItemsResourceUsed()) {
+                return Stream.empty();
+            }
+            Stream<T> items;
+            if (metrics == ComboBoxMetrics.NONE && !QueryTracer.isEnabled()) {
+                items = fetch(offset, limit);
+            } else {
+                // The stream may be lazy, so it has to be consumed to measure
+                // the time of the fetch
+                long start = System.nanoTime();
+                List<T> fetched = fetch(offset, limit)
+                        .collect(Collectors.toList());
+                long nanos = System.nanoTime() - start;
+                metrics.itemsFetched(nanos, fetched.size());
+                QueryTracer.trace(ComboBox.this, QueryTracer.FETCH,
+                        lastFilter, offset, limit, fetched.size(), nanos);
+                items = fetched.stream();
+            }
+            return items.peek(keyMapper::activate);
+        }
+
+        private Stream<T> fetch(int offset, int limit) {
+            if (isFilteredIncrementally()) {
+                List<T> matches = incrementalFilter.filter(filterText);
+                if (rankedFiltering && defaultFilterItems != null) {
+                    // Only the items up to the requested range are ranked
+                    matches = RankedItems.top(matches,
+                            getDefaultFilterRanking(filterText),
+                            (int) Math.min((long) offset + limit,
+                                    matches.size()));
+                }
+                return matches.subList(Math.min(offset, matches.size()),
+                        Math.min(offset + limit, matches.size())).stream();
+            }
+            if (isFetchGuarded() && keysetPager != null) {
+                return fetchWithKeyset(keysetPager, offset, limit);
+            }
+            if (isFetchGuarded()) {
+                // The items are collected in the thread of the query
+                return fetchGuard.fetch(filterText, offset, limit,
+                        () -> super.fetchFromProvider(offset, limit)
+                                .collect(Collectors.toList()))
+                        .stream();
+            }
+            return super.fetchFromProvider(offset, limit);
+        }
+
+        private <K> Stream<T> fetchWithKeyset(KeysetPager<T, K> pager,
+                int offset, int limit) {
+            // The pager is only used in this thread, as a query which has
+            // timed out keeps running. Only the items are loaded in the thread
+            // of the query.
+            KeysetPager<T, K>.Fetch fetch = pager.prepare(
+                    Objects.toString(filterText, ""), offset, limit,
+                    getPageSize());
+            List<T> items = fetchGuard.fetch(filterText, offset, limit,
+                    fetch::load);
+            pager.remember(fetch);
+            return items.stream();
+        }
+
+        private boolean isFetchGuarded() {
+            // In-memory data providers can't be slow
+            return fetchGuard != null && !getDataProvider().isInMemory();
+        }
+    }
+
     /**
      * Lazy loading updater, used when calling setDataProvider()
      */
@@ -194,8 +395,41 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
     private boolean renderScheduled;
 
     private DataCommunicator<T> dataCommunicator;
+    private final ComboBoxKeyMapper<T> keyMapper = new ComboBoxKeyMapper<>();
+    private SerializableFunction<String, T> itemResolver;
     private final CompositeDataGenerator<T> dataGenerator = new CompositeDataGenerator<>();
     private Registration dataGeneratorRegistration;
+    private RenderedComponentCache<T> componentCache;
+    private int componentCacheSize;
+    private SharedItemDataCache<T> sharedItemDataCache;
+    private boolean sharedItemDataVerified;
+    private boolean itemsLoadedAsResource;
+    private boolean itemsPersistedInBrowser;
+    private boolean itemsResourceUpdateScheduled;
+    private String itemsVersion;
+    private ItemsResource itemsResource;
+    private String itemsResourceVersion;
+    private ListDataProvider<T> listDataProvider;
+    private Map<String, T> resourceItemsByKey;
+    private ComboBoxMetrics metrics = ComboBoxMetrics.NONE;
+    private String lastFilter = "";
+
+    // The filter text of the data communicator
+    private String filterText;
+    private IncrementalItemFilter<T> incrementalFilter;
+    private boolean incrementalFiltering;
+    private int parallelFilteringThreshold;
+    private boolean accentInsensitiveFiltering;
+    private NormalizedLabels<T> normalizedLabels;
+    private boolean rankedFiltering;
+    private int minimumFilterLength;
+    private int maximumRequestedRangeLength;
+    private boolean requestedRangeCut;
+    private TokenBucket requestRateLimiter;
+    private FetchGuard<T> fetchGuard;
+    // The items filtered with the default filter, if used
+    private ListDataProvider<T> defaultFilterItems;
+    private KeysetPager<T, ?> keysetPager;
 
     private Element template;
 
@@ -289,25 +523,29 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
 
     private static <T> T presentationToModel(ComboBox<T> comboBox,
             String presentation) {
-        if (presentation == null || comboBox.dataCommunicator == null) {
+        if (presentation == null) {
             return comboBox.getEmptyValue();
         }
-        return comboBox.getKeyMapper().get(presentation);
+        T model = comboBox.getKeyMapper().get(presentation);
+        if (model == null) {
+            model = comboBox.resolveItem(presentation);
+        }
+        comboBox.getKeyMapper().select(model);
+        return model;
     }
 
     private static <T> String modelToPresentation(ComboBox<T> comboBox,
             T model) {
-        if (model == null) {
-            return null;
-        }
-        return comboBox.getKeyMapper().key(model);
+        return comboBox.getKeyMapper().select(model);
     }
 
     @Override
     public void setValue(T value) {
         super.setValue(value);
+        refreshSelectedItem(value);
+    }
 
-        DataKeyMapper<T> keyMapper = getKeyMapper();
+    private void refreshSelectedItem(T value) {
         if (value != null && keyMapper.has(value)) {
             value = keyMapper.get(keyMapper.key(value));
         }
@@ -318,10 +556,11 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         }
 
         // This ensures that the selection works even with lazy loading when the
-        // item is not yet loaded
+        // item is not yet loaded. Only the label is shown for the selected
+        // item, so there's no need to render it.
         JsonObject json = Json.createObject();
-        json.put("key", keyMapper.key(value));
-        dataGenerator.generateData(value, json);
+        json.put("key", keyMapper.select(value));
+        json.put("label", generateLabel(value));
         setSelectedItem(json);
     }
 
@@ -330,6 +569,13 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
      * the list of possible choices of the ComboBox. It doesn't affect how the
      * selected item is rendered - that can be configured by using
      * {@link #setItemLabelGenerator(ItemLabelGenerator)}.
+     * <p>
+     * With a {@link TemplateRenderer}, the items are rendered entirely in the
+     * browser from the template and the properties sent for each item, so no
+     * server-side components are created for the items and the memory used by
+     * the ComboBox on the server doesn't depend on the number of items shown.
+     * A {@link ComponentRenderer} creates a component for each item sent to
+     * the client, see {@link #setComponentCacheSize(int)}.
      *
      * @param renderer
      *            a renderer for the items in the selection list of the
@@ -338,6 +584,7 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
     public void setRenderer(Renderer<T> renderer) {
         Objects.requireNonNull(renderer, "The renderer must not be null");
         this.renderer = renderer;
+        sharedItemDataVerified = false;
 
         if (template == null) {
             template = new Element("template");
@@ -423,15 +670,13 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         }
 
         if (dataCommunicator == null) {
-            dataCommunicator = new DataCommunicator<>(dataGenerator,
-                    arrayUpdater, data -> getElement()
-                            .callFunction("$connector.updateData", data),
-                    getElement().getNode());
+            dataCommunicator = new ComboBoxDataCommunicator();
         }
 
         getElement().callFunction("$connector.reset");
         scheduleRender();
         setValue(null);
+        clearComponentCache();
 
         SerializableFunction<String, C> convertOrNull = filterText -> {
             if (filterText == null || filterText.isEmpty()) {
@@ -441,12 +686,21 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
             return filterConverter.apply(filterText);
         };
 
+        incrementalFilter = null;
+        defaultFilterItems = null;
+        listDataProvider = null;
+        keysetPager = null;
+        if (fetchGuard != null) {
+            fetchGuard.clear();
+        }
+        filterText = getFilterString();
         SerializableConsumer<C> providerFilterSlot = dataCommunicator
-                .setDataProvider(dataProvider,
-                        convertOrNull.apply(getFilterString()));
+                .setDataProvider(dataProvider, convertOrNull.apply(filterText));
 
-        filterSlot = filter -> providerFilterSlot
-                .accept(convertOrNull.apply(filter));
+        filterSlot = filter -> {
+            filterText = filter;
+            providerFilterSlot.accept(convertOrNull.apply(filter));
+        };
 
         boolean shouldForceServerSideFiltering = userProvidedFilter == UserProvidedFilter.YES;
 
@@ -458,7 +712,16 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
     }
 
     private void dataProviderUpdated(boolean forceServerSideFiltering) {
-        int size = getDataProvider().size(new Query<>());
+        // The items may have changed, render them again
+        clearComponentCache();
+        long start = System.nanoTime();
+        int size = fetchGuard != null && !getDataProvider().isInMemory()
+                ? fetchGuard.size(null,
+                        () -> getDataProvider().size(new Query<>()))
+                : getDataProvider().size(new Query<>());
+        long nanos = System.nanoTime() - start;
+        metrics.sizeQueried(nanos, size);
+        QueryTracer.trace(this, QueryTracer.SIZE, null, 0, 0, size, nanos);
         setClientSideFilter(
                 !forceServerSideFiltering && size <= getPageSizeDouble());
 
@@ -488,11 +751,62 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
 
         // Cannot use the case insensitive contains shorthand from
         // ListDataProvider since it wouldn't react to locale changes
-        ItemFilter<T> defaultItemFilter = (item,
-                filterText) -> generateLabel(item).toLowerCase(getLocale())
-                        .contains(filterText.toLowerCase(getLocale()));
+        ItemFilter<T> defaultItemFilter = (item, filterText) -> {
+            if (accentInsensitiveFiltering) {
+                return NormalizedLabels
+                        .normalize(generateLabel(item), getLocale())
+                        .contains(NormalizedLabels.normalize(filterText,
+                                getLocale()));
+            }
+            return generateLabel(item).toLowerCase(getLocale())
+                    .contains(filterText.toLowerCase(getLocale()));
+        };
 
         setDataProvider(defaultItemFilter, listDataProvider);
+        // The default filter can always be applied incrementally. The locale
+        // is resolved once per filter text, as it isn't available in the
+        // threads used for filtering in parallel.
+        incrementalFilter = new IncrementalItemFilter<>(listDataProvider,
+                filterText -> {
+                    Locale locale = getLocale();
+                    SerializableFunction<T, String> labelKeys = getLabelKeys(
+                            listDataProvider, locale);
+                    String filterKey = getFilterKey(filterText, locale);
+                    return item -> labelKeys.apply(item).contains(filterKey);
+                });
+        incrementalFilter.setParallelThreshold(parallelFilteringThreshold);
+        defaultFilterItems = listDataProvider;
+    }
+
+    private ToIntFunction<T> getDefaultFilterRanking(String filterText) {
+        Locale locale = getLocale();
+        SerializableFunction<T, String> labelKeys = getLabelKeys(
+                defaultFilterItems, locale);
+        String filterKey = getFilterKey(filterText, locale);
+        return item -> RankedItems.rank(labelKeys.apply(item), filterKey);
+    }
+
+    /*
+     * The labels and the filter text as compared by the default filter, i.e.
+     * in lower case and optionally without accents
+     */
+    private SerializableFunction<T, String> getLabelKeys(
+            ListDataProvider<T> listDataProvider, Locale locale) {
+        if (!accentInsensitiveFiltering) {
+            return item -> generateLabel(item).toLowerCase(locale);
+        }
+        if (normalizedLabels == null
+                || !normalizedLabels.getLocale().equals(locale)) {
+            normalizedLabels = new NormalizedLabels<>(
+                    listDataProvider.getItems(), this::generateLabel, locale);
+        }
+        return normalizedLabels::getKey;
+    }
+
+    private String getFilterKey(String filterText, Locale locale) {
+        return accentInsensitiveFiltering
+                ? NormalizedLabels.normalize(filterText, locale)
+                : filterText.toLowerCase(locale);
     }
 
     /**
@@ -519,6 +833,78 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
                 q -> sizeCallback.apply(q.getFilter().orElse(""))));
     }
 
+    /**
+     * Sets a CallbackDataProvider which fetches the items with keyset paging,
+     * using the given fetch items callback, sort key provider and size
+     * callback.
+     * <p>
+     * The items must be ordered by unique sort keys. The combo box remembers
+     * the sort key of the last item before each page it has fetched, so that
+     * scrolling deep into the items costs the same as fetching the first
+     * page. When the user skips pages, e.g. by dragging the scroll bar, the
+     * items are fetched from the closest known page, and the pages on the way
+     * are remembered. The keys are forgotten when the filter changes or the
+     * data provider is refreshed.
+     *
+     * @param fetchItems
+     *            a callback for fetching the items after a sort key
+     * @param sortKeyProvider
+     *            a function returning the sort key of an item
+     * @param sizeCallback
+     *            a callback for getting the count of items
+     * @param <K>
+     *            the type of the sort keys
+     *
+     * @see #setDataProvider(FetchItemsCallback, SerializableFunction)
+     */
+    public <K> void setDataProvider(KeysetFetchItemsCallback<T, K> fetchItems,
+            SerializableFunction<T, K> sortKeyProvider,
+            SerializableFunction<String, Integer> sizeCallback) {
+        setKeysetDataProvider(new KeysetPager<>(fetchItems, sortKeyProvider),
+                sizeCallback);
+    }
+
+    /**
+     * Sets a CallbackDataProvider which fetches the items with keyset paging,
+     * using the given fetch items callbacks, sort key provider and size
+     * callback.
+     * <p>
+     * This works like
+     * {@link #setDataProvider(KeysetFetchItemsCallback, SerializableFunction, SerializableFunction)},
+     * except that when the closest known page is more than a few pages before
+     * the requested items, e.g. when the user drags the scroll bar far down,
+     * the items are fetched with the given offset callback instead of
+     * fetching all the items on the way.
+     *
+     * @param fetchItems
+     *            a callback for fetching the items after a sort key
+     * @param sortKeyProvider
+     *            a function returning the sort key of an item
+     * @param offsetFetchItems
+     *            a callback for fetching the items at an offset
+     * @param sizeCallback
+     *            a callback for getting the count of items
+     * @param <K>
+     *            the type of the sort keys
+     */
+    public <K> void setDataProvider(KeysetFetchItemsCallback<T, K> fetchItems,
+            SerializableFunction<T, K> sortKeyProvider,
+            FetchItemsCallback<T> offsetFetchItems,
+            SerializableFunction<String, Integer> sizeCallback) {
+        setKeysetDataProvider(new KeysetPager<>(fetchItems, sortKeyProvider,
+                offsetFetchItems), sizeCallback);
+    }
+
+    private void setKeysetDataProvider(KeysetPager<T, ?> pager,
+            SerializableFunction<String, Integer> sizeCallback) {
+        userProvidedFilter = UserProvidedFilter.YES;
+        setDataProvider(new CallbackDataProvider<>(
+                q -> pager.fetch(q.getFilter().orElse(""), q.getOffset(),
+                        q.getLimit(), getPageSize()),
+                q -> sizeCallback.apply(q.getFilter().orElse(""))));
+        keysetPager = pager;
+    }
+
     /**
      * Sets a list data provider with an item filter as the data provider of
      * this combo box. The item filter is used to compare each item to the
@@ -542,6 +928,12 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
 
         setDataProvider(listDataProvider,
                 filterText -> item -> itemFilter.test(item, filterText));
+        this.listDataProvider = listDataProvider;
+        incrementalFilter = incrementalFiltering
+                ? new IncrementalItemFilter<>(listDataProvider,
+                        filterText -> item -> itemFilter.test(item,
+                                filterText))
+                : null;
     }
 
     /**
@@ -553,6 +945,634 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         return dataCommunicator.getDataProvider();
     }
 
+    /**
+     * Sets the provider of the item ids which are used as the keys identifying
+     * the items in the browser, such as the primary keys of the entities. The
+     * ids must be unique within the data set, and their string representations
+     * are sent to the client.
+     * <p>
+     * By default, the keys are generated on the server and a mapping between
+     * the keys and the item ids is kept for all the items sent to the client.
+     * Using the item ids as the keys removes the need for that mapping, as the
+     * key of an item can be derived directly from the item.
+     *
+     * @param itemIdProvider
+     *            the provider of the item ids, or {@code null} to use
+     *            generated keys
+     */
+    public void setItemIdProvider(ValueProvider<T, ?> itemIdProvider) {
+        T value = getValue();
+        clearComponentCache();
+        keyMapper.setItemIdProvider(itemIdProvider);
+        reset();
+        if (value != null) {
+            // The key of the selected item may have changed
+            setPresentationValue(value);
+            refreshSelectedItem(value);
+        }
+    }
+
+    /**
+     * Gets the provider of the item ids which are used as the keys identifying
+     * the items in the browser.
+     *
+     * @see #setItemIdProvider(ValueProvider)
+     *
+     * @return the provider of the item ids, or {@code null} if generated keys
+     *         are used
+     */
+    public ValueProvider<T, ?> getItemIdProvider() {
+        return keyMapper.getItemIdProvider();
+    }
+
+    /**
+     * Sets the callback for fetching an item by its id. It is used when the
+     * browser refers to an item which is not held by the server, for example
+     * when a value is set in the client before the items have been loaded, or
+     * when the item has been dropped from the server after being sent to the
+     * client. This way the selection can be restored with a single lookup
+     * from the backend, without fetching the items through the data provider
+     * or keeping all of them in memory.
+     * <p>
+     * The item resolver is used only when the item ids are used as the keys,
+     * see {@link #setItemIdProvider(ValueProvider)}. The callback is given the
+     * string representation of the item id, and should return {@code null} if
+     * there is no item with the id.
+     *
+     * @param itemResolver
+     *            the callback for fetching an item by its id, or {@code null}
+     *            to not resolve items which are not held by the server
+     */
+    public void setItemResolver(SerializableFunction<String, T> itemResolver) {
+        this.itemResolver = itemResolver;
+    }
+
+    /**
+     * Gets the callback for fetching an item by its id.
+     *
+     * @see #setItemResolver(SerializableFunction)
+     *
+     * @return the item resolver, or {@code null} if not set
+     */
+    public SerializableFunction<String, T> getItemResolver() {
+        return itemResolver;
+    }
+
+    /**
+     * Sets whether a custom {@link ItemFilter} of a list data provider is
+     * applied incrementally. When the user extends the filter text, e.g. from
+     * "ab" to "abc", only the items that matched the previous text are tested
+     * again instead of all the items.
+     * <p>
+     * This is only correct if any item that matches a filter text also
+     * matches all the prefixes of that text, which is the case e.g. for
+     * "contains" and "starts with" filters. The default filter, used when no
+     * item filter is given, is always applied incrementally.
+     * <p>
+     * The setting is used when an item filter is set with
+     * {@link #setItems(ItemFilter, Collection)} or
+     * {@link #setDataProvider(ItemFilter, ListDataProvider)}, so it should be
+     * set before them. It is <code>false</code> by default.
+     *
+     * @param incrementalFiltering
+     *            <code>true</code> to apply custom item filters incrementally,
+     *            <code>false</code> to test all the items for each filter
+     */
+    public void setIncrementalFiltering(boolean incrementalFiltering) {
+        this.incrementalFiltering = incrementalFiltering;
+    }
+
+    /**
+     * Gets whether a custom {@link ItemFilter} of a list data provider is
+     * applied incrementally.
+     *
+     * @return <code>true</code> if custom item filters are applied
+     *         incrementally, <code>false</code> otherwise
+     * @see #setIncrementalFiltering(boolean)
+     */
+    public boolean isIncrementalFiltering() {
+        return incrementalFiltering;
+    }
+
+    /**
+     * Sets the number of items from which the default filter of a list data
+     * provider is evaluated in parallel. The items are split into chunks which
+     * are filtered in the common {@link java.util.concurrent.ForkJoinPool}, so
+     * filtering a large list takes less time while the session is locked. The
+     * order of the items is preserved.
+     * <p>
+     * The item labels are then generated in other threads, so the
+     * {@link ItemLabelGenerator} must not depend on thread locals such as
+     * {@link UI#getCurrent()}. Custom item filters are always evaluated in the
+     * request thread.
+     * <p>
+     * The setting is used when the items are set with
+     * {@link #setItems(Collection)} or
+     * {@link #setDataProvider(ListDataProvider)}, so it should be set before
+     * them. The default threshold is 0, which disables parallel filtering.
+     *
+     * @param parallelFilteringThreshold
+     *            the minimum number of items to filter in parallel, not
+     *            negative
+     */
+    public void setParallelFilteringThreshold(int parallelFilteringThreshold) {
+        if (parallelFilteringThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Parallel filtering threshold should not be negative.");
+        }
+        this.parallelFilteringThreshold = parallelFilteringThreshold;
+    }
+
+    /**
+     * Gets the number of items from which the default filter of a list data
+     * provider is evaluated in parallel.
+     *
+     * @see #setParallelFilteringThreshold(int)
+     *
+     * @return the minimum number of items to filter in parallel, or 0 if
+     *         parallel filtering is disabled
+     */
+    public int getParallelFilteringThreshold() {
+        return parallelFilteringThreshold;
+    }
+
+    /**
+     * Sets whether the default filter of a list data provider ignores accents
+     * in addition to case, so that e.g. "zurich" matches "Zürich". The labels
+     * of the items are normalized once and kept in memory until the items or
+     * the item label generator change, so matching does not convert every
+     * label again for each filter text.
+     * <p>
+     * The setting also applies to filtering in the client-side. It is
+     * <code>false</code> by default.
+     *
+     * @param accentInsensitiveFiltering
+     *            <code>true</code> to ignore accents when filtering,
+     *            <code>false</code> to only ignore case
+     */
+    public void setAccentInsensitiveFiltering(
+            boolean accentInsensitiveFiltering) {
+        this.accentInsensitiveFiltering = accentInsensitiveFiltering;
+        getElement().setProperty("_accentInsensitiveFilter",
+                accentInsensitiveFiltering);
+        reset();
+    }
+
+    /**
+     * Gets whether the default filter of a list data provider ignores accents.
+     *
+     * @return <code>true</code> if accents are ignored when filtering,
+     *         <code>false</code> otherwise
+     * @see #setAccentInsensitiveFiltering(boolean)
+     */
+    public boolean isAccentInsensitiveFiltering() {
+        return accentInsensitiveFiltering;
+    }
+
+    /**
+     * Sets whether the items matching the default filter of a list data
+     * provider are ranked by where the filter text is found in their labels.
+     * Items whose label starts with the filter text are shown first, then the
+     * items with a word starting with the filter text, and then the rest.
+     * Items with the same rank keep the order of the data provider. A word
+     * starts after any character which is not a letter or a digit, as defined
+     * by {@link Character#isLetterOrDigit(char)}, so e.g. in Chinese or Hebrew
+     * text only whitespace and punctuation start a new word.
+     * <p>
+     * Only the items up to the end of the range requested by the client are
+     * selected, using a heap bounded to the size of the range, so the matches
+     * are not sorted completely for each filter text. The setting also applies
+     * to filtering in the client-side, where browsers without Unicode regular
+     * expressions, such as IE11, only treat cased letters and ASCII digits as
+     * part of a word. It is <code>false</code> by default.
+     *
+     * @param rankedFiltering
+     *            <code>true</code> to show the best matches first,
+     *            <code>false</code> to keep the order of the data provider
+     */
+    public void setRankedFiltering(boolean rankedFiltering) {
+        this.rankedFiltering = rankedFiltering;
+        getElement().setProperty("_rankedFilter", rankedFiltering);
+        reset();
+    }
+
+    /**
+     * Gets whether the items matching the default filter of a list data
+     * provider are ranked.
+     *
+     * @return <code>true</code> if the best matches are shown first,
+     *         <code>false</code> otherwise
+     * @see #setRankedFiltering(boolean)
+     */
+    public boolean isRankedFiltering() {
+        return rankedFiltering;
+    }
+
+    /**
+     * Sets the minimum length of the filter text for which items are fetched
+     * from the data provider. While the user has typed fewer characters, the
+     * drop down shows no items and neither the browser nor the server queries
+     * for them, so that e.g. a one character filter doesn't make an expensive
+     * and useless query against a huge table. An empty filter shows all the
+     * items as usual.
+     * <p>
+     * The minimum length doesn't apply when the items are filtered in the
+     * client-side, since that doesn't make any queries. The default value is
+     * 0, which fetches the items for every filter.
+     *
+     * @param minimumFilterLength
+     *            the minimum number of characters in the filter text, not
+     *            negative
+     */
+    public void setMinimumFilterLength(int minimumFilterLength) {
+        if (minimumFilterLength < 0) {
+            throw new IllegalArgumentException(
+                    "Minimum filter length should not be negative.");
+        }
+        this.minimumFilterLength = minimumFilterLength;
+        getElement().setProperty("_minimumFilterLength", minimumFilterLength);
+        reset();
+    }
+
+    /**
+     * Gets the minimum length of the filter text for which items are fetched
+     * from the data provider.
+     *
+     * @see #setMinimumFilterLength(int)
+     *
+     * @return the minimum number of characters in the filter text
+     */
+    public int getMinimumFilterLength() {
+        return minimumFilterLength;
+    }
+
+    /**
+     * Sets the maximum number of items the client may request at once. A
+     * longer range is cut to its end, where the client is scrolling to, so
+     * that a misbehaving client can't make the server fetch and send millions
+     * of items.
+     * <p>
+     * The client requests all the items from the first page up to the
+     * scrolled page, unless {@link #setRetainedPageCount(int)} is used, so the
+     * maximum should be higher than the number of items a user would
+     * normally scroll through. With retained pages, the client requests at
+     * most {@code (2 * retainedPageCount + 1) * pageSize} items. The default
+     * value is 0, which doesn't limit the length.
+     *
+     * @param maximumRequestedRangeLength
+     *            the maximum number of items requested at once, or 0 for no
+     *            limit
+     */
+    public void setMaximumRequestedRangeLength(
+            int maximumRequestedRangeLength) {
+        if (maximumRequestedRangeLength < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum requested range length should not be negative.");
+        }
+        this.maximumRequestedRangeLength = maximumRequestedRangeLength;
+    }
+
+    /**
+     * Gets the maximum number of items the client may request at once.
+     *
+     * @see #setMaximumRequestedRangeLength(int)
+     *
+     * @return the maximum number of items requested at once, or 0 if not
+     *         limited
+     */
+    public int getMaximumRequestedRangeLength() {
+        return maximumRequestedRangeLength;
+    }
+
+    /**
+     * Sets the maximum rate at which the client may request items from this
+     * combo box, to protect the data provider's backend from a misbehaving
+     * client. The requests are limited with a token bucket which allows
+     * bursts of up to one second worth of requests. Requests over the limit
+     * are not answered with items but reported to
+     * {@link ComboBoxMetrics#requestThrottled()}, and the client is told to
+     * send the request again when the limit allows it.
+     * <p>
+     * A normal client makes at most a few requests per second, as the filter
+     * changes are debounced. The default value is 0, which doesn't limit the
+     * rate.
+     *
+     * @param requestsPerSecond
+     *            the maximum number of requests per second, or 0 for no limit
+     */
+    public void setRequestRateLimit(int requestsPerSecond) {
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException(
+                    "Request rate limit should not be negative.");
+        }
+        requestRateLimiter = requestsPerSecond > 0
+                ? createRequestRateLimiter(requestsPerSecond)
+                : null;
+    }
+
+    // Overridden in tests to run the rate limiter on a fake clock
+    TokenBucket createRequestRateLimiter(int requestsPerSecond) {
+        return new TokenBucket(requestsPerSecond);
+    }
+
+    /**
+     * Gets the maximum rate at which the client may request items.
+     *
+     * @see #setRequestRateLimit(int)
+     *
+     * @return the maximum number of requests per second, or 0 if not limited
+     */
+    public int getRequestRateLimit() {
+        return requestRateLimiter == null ? 0
+                : requestRateLimiter.getTokensPerSecond();
+    }
+
+    /**
+     * Sets the maximum time to wait for the data provider to return the size
+     * or the items, so that a slow backend doesn't keep the session locked
+     * and freeze the UI. When a query times out or fails, the result of the
+     * last successful query with the same filter and range is used instead,
+     * or no items if there is none.
+     * <p>
+     * After {@value FetchGuard#FAILURE_THRESHOLD} consecutive failures, a
+     * circuit breaker opens and the cached results are used without querying
+     * the data provider for 30 seconds, after which one query is tried to
+     * find out whether the backend has recovered. The state changes are
+     * fired as {@link CircuitBreakerEvent}s.
+     * <p>
+     * The queries are then run in another thread, without the current UI,
+     * session or any other thread locals, so the data provider must not use
+     * them: a query which has timed out keeps running while the session is
+     * no longer locked. The thread of a timed out query is interrupted, which
+     * doesn't stop e.g. a JDBC query, so the backend should also have a
+     * timeout of its own. At most {@value FetchGuard#MAX_THREADS} queries
+     * run at once in a service, and further queries fail right away. The
+     * timeout doesn't apply to in-memory data providers. By default there is
+     * no timeout.
+     *
+     * @param fetchTimeout
+     *            the maximum time to wait for a query, or <code>null</code>
+     *            to query without a timeout
+     */
+    public void setFetchTimeout(Duration fetchTimeout) {
+        if (fetchTimeout == null || fetchTimeout.isZero()) {
+            fetchGuard = null;
+        } else if (fetchTimeout.isNegative()) {
+            throw new IllegalArgumentException(
+                    "Fetch timeout should not be negative.");
+        } else if (fetchGuard != null) {
+            fetchGuard.setTimeout(fetchTimeout);
+        } else {
+            fetchGuard = new FetchGuard<>(fetchTimeout,
+                    state -> fireEvent(
+                            new CircuitBreakerEvent<>(this, false, state)));
+        }
+    }
+
+    /**
+     * Gets the maximum time to wait for the data provider to return the size
+     * or the items.
+     *
+     * @return the maximum time to wait for a query, or <code>null</code> if
+     *         there is no timeout
+     * @see #setFetchTimeout(Duration)
+     */
+    public Duration getFetchTimeout() {
+        return fetchGuard == null ? null : fetchGuard.getTimeout();
+    }
+
+    /**
+     * Adds a listener for the state changes of the circuit breaker which
+     * guards the data provider queries when a fetch timeout is set.
+     *
+     * @param listener
+     *            the listener to add, not <code>null</code>
+     * @return a handle that can be used for removing the listener
+     * @see #setFetchTimeout(Duration)
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Registration addCircuitBreakerListener(
+            ComponentEventListener<CircuitBreakerEvent<T>> listener) {
+        return addListener(CircuitBreakerEvent.class,
+                (ComponentEventListener) listener);
+    }
+
+    /**
+     * Sets whether the browser defers confirming the updates of the items it
+     * has received. The server is told about each applied update so that it
+     * can release the keys of the items the browser no longer has. By
+     * default, each update is confirmed with a request of its own. When
+     * deferred, the confirmations are sent along with the next request for
+     * items, or together after a second if no items are requested before
+     * that, which halves the number of requests while scrolling.
+     * <p>
+     * The keys of the items are then released a bit later. It is
+     * <code>false</code> by default.
+     *
+     * @param deferUpdateConfirmation
+     *            <code>true</code> to send the confirmations with the next
+     *            request, <code>false</code> to send each one immediately
+     */
+    public void setDeferUpdateConfirmation(boolean deferUpdateConfirmation) {
+        getElement().setProperty("_deferUpdateConfirmation",
+                deferUpdateConfirmation);
+    }
+
+    /**
+     * Gets whether the browser defers confirming the updates of the items it
+     * has received.
+     *
+     * @return <code>true</code> if the confirmations are sent with the next
+     *         request, <code>false</code> if each one is sent immediately
+     * @see #setDeferUpdateConfirmation(boolean)
+     */
+    public boolean isDeferUpdateConfirmation() {
+        return getElement().getProperty("_deferUpdateConfirmation", false);
+    }
+
+    /**
+     * Sets the number of components rendered with a {@link ComponentRenderer}
+     * which are kept for reuse after their items are no longer loaded in the
+     * browser. Setting a cache size also keeps the components of the loaded
+     * items when the filter changes, so the components are not created again
+     * for the items that match the new filter.
+     * <p>
+     * Components of items which are no longer loaded can only be reused if
+     * the item ids are used as the keys, see
+     * {@link #setItemIdProvider(ValueProvider)}. The least recently used
+     * components are discarded first when the cache is full. All the
+     * components are rendered again when the data provider is refreshed.
+     * <p>
+     * The default cache size is 0, which disables caching.
+     *
+     * @param componentCacheSize
+     *            the maximum number of cached components, not negative
+     */
+    public void setComponentCacheSize(int componentCacheSize) {
+        if (componentCacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "Component cache size should not be negative.");
+        }
+        this.componentCacheSize = componentCacheSize;
+        if (componentCache != null) {
+            componentCache.setCacheSize(componentCacheSize);
+        }
+    }
+
+    /**
+     * Gets the number of components rendered with a {@link ComponentRenderer}
+     * which are kept for reuse after their items are no longer loaded in the
+     * browser.
+     *
+     * @see #setComponentCacheSize(int)
+     *
+     * @return the maximum number of cached components
+     */
+    public int getComponentCacheSize() {
+        return componentCacheSize;
+    }
+
+    /**
+     * Sets a cache of the data generated for the items, shared with other
+     * combo boxes in all the sessions. This avoids generating the labels and
+     * template properties of reference data, such as countries or currencies,
+     * again for every user. The items must not change, and all the combo
+     * boxes using the same cache must show the items the same way: the data
+     * of the first cached item shown is generated to check this, and an
+     * {@link IllegalStateException} is thrown if it differs from the cached
+     * data.
+     * <p>
+     * The cache is not used for items rendered with a
+     * {@link ComponentRenderer}. By default there is no shared cache.
+     *
+     * @param sharedItemDataCache
+     *            the shared cache, or <code>null</code> to generate the data
+     *            of the items in this combo box only
+     */
+    public void setSharedItemDataCache(
+            SharedItemDataCache<T> sharedItemDataCache) {
+        this.sharedItemDataCache = sharedItemDataCache;
+        sharedItemDataVerified = false;
+        reset();
+    }
+
+    /**
+     * Gets the cache of the data generated for the items, shared with other
+     * combo boxes.
+     *
+     * @return the shared cache, or <code>null</code> if there is none
+     * @see #setSharedItemDataCache(SharedItemDataCache)
+     */
+    public SharedItemDataCache<T> getSharedItemDataCache() {
+        return sharedItemDataCache;
+    }
+
+    /**
+     * Sets whether all the items are loaded by the browser as a single HTTP
+     * resource, instead of being sent page by page. The browser then filters
+     * the items by their labels, and caches the resource across page loads.
+     * This suits large lists that rarely change, such as thousands of
+     * products or cities, which would otherwise be sent to every session.
+     * <p>
+     * The resource is versioned by its content, or by the version set with
+     * {@link #setItemsVersion(String)}: the same items get the same URL in
+     * every UI and session, and the browser gets a 304 response when it
+     * already has the current version. The items are loaded as a resource
+     * only when they come from a {@link ListDataProvider}, set e.g. with
+     * {@link #setItems(Collection)}, and an item id provider is set, see
+     * {@link #setItemIdProvider(ValueProvider)}, so that the keys are the
+     * same in every session. Items rendered with a
+     * {@link ComponentRenderer} are always sent page by page. A custom item
+     * filter is not used, since the items are filtered in the browser.
+     * <p>
+     * The default value is <code>false</code>.
+     *
+     * @param itemsLoadedAsResource
+     *            <code>true</code> to load all the items as a resource,
+     *            <code>false</code> to send them page by page
+     */
+    public void setItemsLoadedAsResource(boolean itemsLoadedAsResource) {
+        this.itemsLoadedAsResource = itemsLoadedAsResource;
+        reset();
+    }
+
+    /**
+     * Gets whether all the items are loaded by the browser as a single HTTP
+     * resource.
+     *
+     * @return <code>true</code> if the items are loaded as a resource when
+     *         possible, <code>false</code> if they are sent page by page
+     * @see #setItemsLoadedAsResource(boolean)
+     */
+    public boolean isItemsLoadedAsResource() {
+        return itemsLoadedAsResource;
+    }
+
+    /**
+     * Sets the version of the items loaded as a resource, see
+     * {@link #setItemsLoadedAsResource(boolean)}, e.g. the revision of the
+     * reference data they come from. Without a version, the JSON of all the
+     * items is generated and hashed whenever the items are reset, in every
+     * session, to find out their version. With a version, the JSON is only
+     * generated when no session has the items of that version in use.
+     * <p>
+     * The version must change whenever the items or the way they're shown
+     * change, and all the combo boxes with the same version must show the
+     * same items the same way. By default there is no version.
+     *
+     * @param itemsVersion
+     *            the version of the items, or <code>null</code> to version
+     *            the items by their content
+     */
+    public void setItemsVersion(String itemsVersion) {
+        this.itemsVersion = itemsVersion;
+        reset();
+    }
+
+    /**
+     * Gets the version of the items loaded as a resource.
+     *
+     * @return the version of the items, or <code>null</code> if they are
+     *         versioned by their content
+     * @see #setItemsVersion(String)
+     */
+    public String getItemsVersion() {
+        return itemsVersion;
+    }
+
+    /**
+     * Sets whether the browser persists the items loaded as a resource, see
+     * {@link #setItemsLoadedAsResource(boolean)}. The items are then stored in
+     * the IndexedDB of the browser by their version, and reused on later
+     * visits, in any session, as long as the items have not changed. Only the
+     * version of the items needs to be sent to the browser then, which suits
+     * large catalogs that change rarely.
+     * <p>
+     * The browser keeps the five most recently stored versions of all the
+     * persisted item lists. If IndexedDB is not available, the items are
+     * loaded as a resource every time. The default value is
+     * <code>false</code>.
+     *
+     * @param itemsPersistedInBrowser
+     *            <code>true</code> to persist the items in the browser,
+     *            <code>false</code> to only rely on the HTTP cache
+     */
+    public void setItemsPersistedInBrowser(boolean itemsPersistedInBrowser) {
+        this.itemsPersistedInBrowser = itemsPersistedInBrowser;
+        reset();
+    }
+
+    /**
+     * Gets whether the browser persists the items loaded as a resource.
+     *
+     * @return <code>true</code> if the items are persisted in the browser,
+     *         <code>false</code> otherwise
+     * @see #setItemsPersistedInBrowser(boolean)
+     */
+    public boolean isItemsPersistedInBrowser() {
+        return itemsPersistedInBrowser;
+    }
+
     /**
      * Sets the item label generator that is used to produce the strings shown
      * in the combo box for each item. By default,
@@ -569,6 +1589,7 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         Objects.requireNonNull(itemLabelGenerator,
                 "The item label generator can not be null");
         this.itemLabelGenerator = itemLabelGenerator;
+        sharedItemDataVerified = false;
         reset();
     }
 
@@ -626,6 +1647,72 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         return getElement().getProperty("pageSize", 50);
     }
 
+    /**
+     * Sets the number of pages kept loaded on each side of the page the user
+     * is currently looking at. Pages further away are dropped both in the
+     * browser and on the server, and are fetched again if the user scrolls
+     * back to them. The selected item is always kept.
+     * <p>
+     * Limiting the retained pages caps the memory used per combo box when
+     * users scroll through very large lazy loaded data sets, at the cost of
+     * fetching pages again. By default there is no limit, and all pages the
+     * user has scrolled through are kept until the filter changes.
+     *
+     * @param retainedPageCount
+     *            the number of pages to keep on each side of the current
+     *            page, should be greater than zero, or a negative value to
+     *            remove the limit
+     */
+    public void setRetainedPageCount(int retainedPageCount) {
+        if (retainedPageCount == 0) {
+            throw new IllegalArgumentException(
+                    "Retained page count should be greater than zero, "
+                            + "or negative to remove the limit.");
+        }
+        getElement().setProperty("_retainedPageCount",
+                Math.max(-1, retainedPageCount));
+        reset();
+    }
+
+    /**
+     * Gets the number of pages kept loaded on each side of the page the user
+     * is currently looking at.
+     *
+     * @see #setRetainedPageCount(int)
+     *
+     * @return the number of retained pages, or {@code -1} if there is no
+     *         limit
+     */
+    public int getRetainedPageCount() {
+        return getElement().getProperty("_retainedPageCount", -1);
+    }
+
+    /**
+     * Sets the metrics which receive the measurements of how this combo box
+     * loads its items and sends them to the client. By default, the
+     * measurements are ignored.
+     * <p>
+     * To trace each individual query with its filter and range, enable debug
+     * logging for {@code com.vaadin.flow.component.combobox.ComboBox.queries}.
+     *
+     * @param metrics
+     *            the metrics to use, not <code>null</code>
+     * @see MeterComboBoxMetrics
+     */
+    public void setMetrics(ComboBoxMetrics metrics) {
+        Objects.requireNonNull(metrics, "The metrics must not be null");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the metrics which receive the measurements of this combo box.
+     *
+     * @return the metrics, {@link ComboBoxMetrics#NONE} if not set
+     */
+    public ComboBoxMetrics getMetrics() {
+        return metrics;
+    }
+
     @Override
     public void setOpened(boolean opened) {
         super.setOpened(opened);
@@ -828,6 +1915,28 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         return new CustomValueRegistration(registration);
     }
 
+    /**
+     * Adds a listener for the latencies measured by the browser when the user
+     * filters or scrolls the items, from the user's action until the items
+     * are shown. The latencies are only measured while there are listeners.
+     *
+     * @param listener
+     *            the listener to add, not <code>null</code>
+     * @return a handle that can be used for removing the listener
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public Registration addRenderLatencyListener(
+            ComponentEventListener<RenderLatencyEvent<T>> listener) {
+        Registration registration = addListener(RenderLatencyEvent.class,
+                (ComponentEventListener) listener);
+        getElement().setProperty("_reportRenderLatency", true);
+        return () -> {
+            registration.remove();
+            getElement().setProperty("_reportRenderLatency",
+                    hasListener(RenderLatencyEvent.class));
+        };
+    }
+
     CompositeDataGenerator<T> getDataGenerator() {
         return dataGenerator;
     }
@@ -852,6 +1961,8 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         }
         renderScheduled = true;
         runBeforeClientResponse(ui -> {
+            clearComponentCache();
+            componentCache = null;
             if (dataGeneratorRegistration != null) {
                 dataGeneratorRegistration.remove();
                 dataGeneratorRegistration = null;
@@ -859,8 +1970,15 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
             Rendering<T> rendering = renderer.render(getElement(),
                     dataCommunicator.getKeyMapper(), template);
             if (rendering.getDataGenerator().isPresent()) {
+                DataGenerator<T> generator = rendering.getDataGenerator()
+                        .get();
+                if (renderer instanceof ComponentRenderer) {
+                    componentCache = new RenderedComponentCache<>(generator,
+                            keyMapper, componentCacheSize);
+                    generator = componentCache;
+                }
                 dataGeneratorRegistration = dataGenerator
-                        .addDataGenerator(rendering.getDataGenerator().get());
+                        .addDataGenerator(generator);
             }
             reset();
         });
@@ -871,15 +1989,135 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
         dataCommunicator.confirmUpdate(id);
     }
 
+    @ClientCallable
+    private void confirmUpdates(JsonArray ids) {
+        for (int i = 0; i < ids.length(); i++) {
+            dataCommunicator.confirmUpdate((int) ids.getNumber(i));
+        }
+    }
+
+    @ClientCallable
+    private void setRequestedRangeAndConfirmUpdates(int start, int length,
+            String filter, JsonArray ids) {
+        confirmUpdates(ids);
+        setRequestedRange(start, length, filter);
+    }
+
     @ClientCallable
     private void setRequestedRange(int start, int length, String filter) {
+        if (acquireRequest()) {
+            requestRange(start, length, filter);
+        }
+    }
+
+    private boolean acquireRequest() {
+        if (requestRateLimiter == null || requestRateLimiter.tryAcquire()) {
+            return true;
+        }
+        metrics.requestThrottled();
+        // Otherwise the client would wait for the items forever
+        int retryDelay = (int) Math
+                .ceil(1000d / requestRateLimiter.getTokensPerSecond());
+        getElement().callFunction("$connector.throttled", retryDelay);
+        return false;
+    }
+
+    private void requestRange(int start, int length, String filter) {
+        start = Math.max(0, start);
+        length = Math.max(0, length);
+        // A misbehaving client may send a range ending past the largest int
+        long end = (long) start + length;
+        requestedRangeCut = maximumRequestedRangeLength > 0
+                && length > maximumRequestedRangeLength;
+        if (requestedRangeCut) {
+            // Keep the end of the range, where the client is scrolling to.
+            // The client must drop the items before it, as their keys are
+            // released.
+            length = maximumRequestedRangeLength;
+        }
+        start = (int) Math.min(end - length, Integer.MAX_VALUE - length);
+        QueryTracer.trace(this, QueryTracer.REQUEST, filter, start, length, 0,
+                0);
+        if (!Objects.equals(filter, lastFilter)) {
+            lastFilter = filter;
+            metrics.filterChanged();
+        }
+        // The filter slot resets the data communicator whenever it's called
+        // with a list data provider, as the converted filters are never
+        // equal. Only a changed filter may reset it, so that a request makes
+        // one size query and one fetch with the new filter and range.
+        if (!Objects.equals(filter, filterText)) {
+            filterSlot.accept(filter);
+        }
         dataCommunicator.setRequestedRange(start, length);
-        filterSlot.accept(filter);
     }
 
     @ClientCallable
-    private void resetDataCommunicator() {
-        dataCommunicator.reset();
+    private void reportRenderLatencies(JsonArray latencies) {
+        for (int i = 0; i < latencies.length(); i++) {
+            // The reports come from the client, malformed ones are ignored
+            if (latencies.get(i).getType() != JsonType.OBJECT) {
+                continue;
+            }
+            JsonObject latency = latencies.getObject(i);
+            RenderLatencyEvent.Type type = getLatencyType(latency);
+            if (type == null || !hasValue(latency, "filter", JsonType.STRING)
+                    || !hasValue(latency, "page", JsonType.NUMBER)
+                    || !hasValue(latency, "duration", JsonType.NUMBER)) {
+                continue;
+            }
+            fireEvent(new RenderLatencyEvent<>(this, true, type,
+                    latency.getString("filter"),
+                    (int) latency.getNumber("page"),
+                    latency.getNumber("duration")));
+        }
+    }
+
+    private static RenderLatencyEvent.Type getLatencyType(JsonObject latency) {
+        if (!hasValue(latency, "type", JsonType.STRING)) {
+            return null;
+        }
+        String name = latency.getString("type");
+        for (RenderLatencyEvent.Type type : RenderLatencyEvent.Type.values()) {
+            if (type.name().equalsIgnoreCase(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasValue(JsonObject object, String key,
+            JsonType type) {
+        return object.hasKey(key) && object.get(key).getType() == type;
+    }
+
+    /*
+     * Requests a range and sends all of it again, e.g. when the filter has
+     * returned to an earlier value before the client requested anything with
+     * the values in between.
+     */
+    @ClientCallable
+    private void resetRequestedRange(int start, int length, String filter) {
+        if (acquireRequest()) {
+            requestRange(start, length, filter);
+            metrics.reset();
+            dataCommunicator.reset();
+        }
+    }
+
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        if (itemsLoadedAsResource) {
+            scheduleItemsResourceUpdate();
+        }
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        // The session no longer serves the items for this combo box
+        releaseItemsResource();
+        super.onDetach(detachEvent);
     }
 
     void runBeforeClientResponse(SerializableConsumer<UI> command) {
@@ -895,8 +2133,121 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
                         getElement());
     }
 
-    private DataKeyMapper<T> getKeyMapper() {
-        return dataCommunicator.getKeyMapper();
+    private boolean isFilterTooShort() {
+        return filterText != null && !filterText.isEmpty()
+                && filterText.length() < minimumFilterLength;
+    }
+
+    private boolean isFilteredIncrementally() {
+        return incrementalFilter != null && filterText != null
+                && !filterText.isEmpty();
+    }
+
+    private void updateData(JsonArray items) {
+        itemsPushed(items);
+        getElement().callFunction("$connector.updateData", items);
+    }
+
+    private void itemsPushed(JsonArray items) {
+        if (metrics == ComboBoxMetrics.NONE || items.length() == 0) {
+            return;
+        }
+        long bytes = 0;
+        for (int i = 0; i < items.length(); i++) {
+            bytes += items.get(i).toJson().length();
+        }
+        metrics.itemsPushed(items.length(), bytes);
+    }
+
+    private void clearComponentCache() {
+        if (componentCache != null) {
+            componentCache.clear();
+        }
+    }
+
+    private T resolveItem(String key) {
+        if (keyMapper.getItemIdProvider() == null) {
+            return null;
+        }
+        if (itemResolver != null) {
+            return itemResolver.apply(key);
+        }
+        if (isItemsResourceUsed()) {
+            // The items in the browser are not held by the server
+            if (resourceItemsByKey == null) {
+                resourceItemsByKey = listDataProvider.getItems().stream()
+                        .collect(Collectors.toMap(keyMapper::key,
+                                Function.identity(), (first, second) -> first));
+            }
+            return resourceItemsByKey.get(key);
+        }
+        return null;
+    }
+
+    private boolean isItemsResourceUsed() {
+        // The keys must be the same in all the sessions, and the components
+        // of a component renderer can't be shared
+        return itemsLoadedAsResource && listDataProvider != null
+                && keyMapper.getItemIdProvider() != null
+                && !(renderer instanceof ComponentRenderer);
+    }
+
+    private void scheduleItemsResourceUpdate() {
+        if (itemsResourceUpdateScheduled) {
+            return;
+        }
+        itemsResourceUpdateScheduled = true;
+        runBeforeClientResponse(ui -> {
+            itemsResourceUpdateScheduled = false;
+            updateItemsResource(ui);
+        });
+    }
+
+    private void updateItemsResource(UI ui) {
+        if (!isItemsResourceUsed()) {
+            releaseItemsResource();
+            getElement().removeAttribute("items-url");
+            getElement().removeAttribute("items-version");
+            return;
+        }
+        ItemsResource resource = ItemsResource.get(ui.getSession());
+        String version = resource.acquire(itemsVersion,
+                this::generateItemsJson);
+        // Released after acquiring, so that unchanged items stay in use
+        releaseItemsResource();
+        itemsResource = resource;
+        itemsResourceVersion = version;
+        getElement().setAttribute("items-url", ItemsResource.getUrl(version));
+        // The browser looks up its persisted copy by the version
+        if (itemsPersistedInBrowser) {
+            getElement().setAttribute("items-version", version);
+        } else {
+            getElement().removeAttribute("items-version");
+        }
+    }
+
+    private void releaseItemsResource() {
+        if (itemsResourceVersion != null) {
+            itemsResource.release(itemsResourceVersion);
+            itemsResource = null;
+            itemsResourceVersion = null;
+        }
+    }
+
+    private byte[] generateItemsJson() {
+        DataGenerator<T> generator = new SharedDataGenerator();
+        JsonArray items = Json.createArray();
+        getDataProvider().fetch(new Query<>()).forEach(item -> {
+            JsonObject json = Json.createObject();
+            json.put("key", keyMapper.key(item));
+            generator.generateData(item, json);
+            items.set(items.length(), json);
+        });
+        return items.toJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ComboBoxKeyMapper<T> getKeyMapper() {
+        return keyMapper;
     }
 
     private void setClientSideFilter(boolean clientSideFilter) {
@@ -904,6 +2255,19 @@ public class ComboBox<T> extends GeneratedVaadinComboBox<ComboBox<T>, T>
     }
 
     private void reset() {
+        metrics.reset();
+        resourceItemsByKey = null;
+        if (itemsLoadedAsResource || getElement().hasAttribute("items-url")) {
+            scheduleItemsResourceUpdate();
+        }
+        // The items or their labels may have changed
+        if (incrementalFilter != null) {
+            incrementalFilter.clear();
+        }
+        normalizedLabels = null;
+        if (keysetPager != null) {
+            keysetPager.clear();
+        }
         if (dataCommunicator != null) {
             dataCommunicator.setRequestedRange(0, 0);
             dataCommunicator.reset();
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.flow.data.provider.KeyMapper;
+import com.vaadin.flow.function.ValueProvider;
+
+/**
+ * Key mapper used by {@link ComboBox}. In addition to the keys of the items
+ * that the data communicator keeps active, it keeps the key of the selected
+ * item, so that the selection can always be resolved from the key held by the
+ * client.
+ * <p>
+ * Keys of the items which are only known because they have been selected are
+ * released as soon as the selection changes, so the mapper never grows beyond
+ * the active items and one selected item.
+ * <p>
+ * When an item id provider is set, the keys are the string representations of
+ * the item ids instead of generated ones. Generating a key needs no lookup,
+ * and only the activated items and the selected item are stored by their
+ * keys.
+ *
+ * @param <T>
+ *            the type of the items in the combo box
+ * @author Vaadin Ltd
+ */
+class ComboBoxKeyMapper<T> extends KeyMapper<T> {
+
+    private ValueProvider<T, Object> identifierGetter = item -> item;
+
+    private ValueProvider<T, ?> itemIdProvider;
+    private final Map<String, T> itemsById = new HashMap<>();
+
+    private T selectedItem;
+
+    /*
+     * true when the selected item is not among the items activated by the
+     * data communicator, i.e. nobody else will release its key
+     */
+    private boolean selectedItemDetached;
+
+    /**
+     * Sets the provider of the item ids used as the keys, or {@code null} to
+     * generate the keys. All the existing keys are removed.
+     *
+     * @param itemIdProvider
+     *            the item id provider, or {@code null} to generate the keys
+     */
+    void setItemIdProvider(ValueProvider<T, ?> itemIdProvider) {
+        removeAll();
+        this.itemIdProvider = itemIdProvider;
+    }
+
+    /**
+     * Gets the provider of the item ids used as the keys.
+     *
+     * @return the item id provider, or {@code null} if the keys are generated
+     */
+    ValueProvider<T, ?> getItemIdProvider() {
+        return itemIdProvider;
+    }
+
+    /**
+     * Marks the given item as the selected one and returns its key. The key of
+     * the previously selected item is released if nothing else is using it.
+     *
+     * @param item
+     *            the selected item, or {@code null} to clear the selection
+     * @return the key of the selected item, or {@code null} if the item is
+     *         {@code null}
+     */
+    String select(T item) {
+        if (selectedItem != null && isSelected(item)) {
+            return key(item);
+        }
+        if (selectedItem != null && selectedItemDetached) {
+            doRemove(selectedItem);
+        }
+        selectedItem = item;
+        if (item == null) {
+            selectedItemDetached = false;
+            return null;
+        }
+        selectedItemDetached = !has(item);
+        if (itemIdProvider != null) {
+            itemsById.putIfAbsent(idKey(item), item);
+        }
+        return key(item);
+    }
+
+    /**
+     * Notifies the mapper that the given item has been fetched from the data
+     * provider and is about to be activated by the data communicator.
+     *
+     * @param item
+     *            the activated item, not {@code null}
+     */
+    void activate(T item) {
+        if (itemIdProvider != null) {
+            itemsById.put(idKey(item), item);
+        }
+        if (selectedItem != null && isSelected(item)) {
+            selectedItemDetached = false;
+        }
+    }
+
+    @Override
+    public String key(T o) {
+        if (itemIdProvider == null || o == null) {
+            return super.key(o);
+        }
+        return idKey(o);
+    }
+
+    @Override
+    public boolean has(T o) {
+        if (itemIdProvider == null) {
+            return super.has(o);
+        }
+        return itemsById.containsKey(idKey(o));
+    }
+
+    @Override
+    public T get(String key) {
+        if (itemIdProvider == null) {
+            return super.get(key);
+        }
+        return itemsById.get(key);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (itemIdProvider == null) {
+            return super.containsKey(key);
+        }
+        return itemsById.containsKey(key);
+    }
+
+    @Override
+    public void refresh(T dataObject) {
+        if (itemIdProvider == null) {
+            super.refresh(dataObject);
+        } else {
+            itemsById.computeIfPresent(idKey(dataObject),
+                    (key, item) -> dataObject);
+        }
+    }
+
+    @Override
+    public void remove(T removeobj) {
+        if (selectedItem != null && isSelected(removeobj)) {
+            // Keep the key of the selection, release it when deselected
+            selectedItemDetached = true;
+            return;
+        }
+        doRemove(removeobj);
+    }
+
+    @Override
+    public void removeAll() {
+        selectedItem = null;
+        selectedItemDetached = false;
+        itemsById.clear();
+        super.removeAll();
+    }
+
+    @Override
+    public void setIdentifierGetter(
+            ValueProvider<T, Object> identifierGetter) {
+        this.identifierGetter = identifierGetter;
+        super.setIdentifierGetter(identifierGetter);
+    }
+
+    private void doRemove(T item) {
+        if (itemIdProvider == null) {
+            super.remove(item);
+        } else {
+            itemsById.remove(idKey(item));
+        }
+    }
+
+    private String idKey(T item) {
+        return String.valueOf(itemIdProvider.apply(item));
+    }
+
+    private boolean isSelected(T item) {
+        if (item == null) {
+            return false;
+        }
+        if (itemIdProvider != null) {
+            return idKey(item).equals(idKey(selectedItem));
+        }
+        return Objects.equals(identifierGetter.apply(item),
+                identifierGetter.apply(selectedItem));
+    }
+}
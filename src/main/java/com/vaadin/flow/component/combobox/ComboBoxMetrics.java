@@ -0,0 +1,105 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+
+/**
+ * Receives measurements of how a {@link ComboBox} loads its items and sends
+ * them to the client, e.g. to publish them to a monitoring system. All the
+ * methods do nothing by default.
+ * <p>
+ * The methods are called while the session is locked, so they should return
+ * quickly.
+ *
+ * @author Vaadin Ltd
+ * @see ComboBox#setMetrics(ComboBoxMetrics)
+ * @see MeterComboBoxMetrics
+ */
+public interface ComboBoxMetrics extends Serializable {
+
+    /**
+     * Metrics which ignore all the measurements.
+     */
+    ComboBoxMetrics NONE = new ComboBoxMetrics() {
+    };
+
+    /**
+     * Called after the size of the data set has been queried from the data
+     * provider.
+     *
+     * @param nanos
+     *            the time taken by the query in nanoseconds
+     * @param size
+     *            the size returned by the data provider
+     */
+    default void sizeQueried(long nanos, int size) {
+    }
+
+    /**
+     * Called after items have been fetched from the data provider.
+     *
+     * @param nanos
+     *            the time taken by the fetch in nanoseconds
+     * @param itemCount
+     *            the number of fetched items
+     */
+    default void itemsFetched(long nanos, int itemCount) {
+    }
+
+    /**
+     * Called when items are sent to the client, either as new items or as
+     * updates to items the client already has.
+     *
+     * @param itemCount
+     *            the number of items sent
+     * @param bytes
+     *            the length of the items serialized as JSON
+     */
+    default void itemsPushed(int itemCount, long bytes) {
+    }
+
+    /**
+     * Called after the changes to the items have been queued for the client.
+     *
+     * @param nanos
+     *            the time taken by the commit in nanoseconds
+     */
+    default void updateCommitted(long nanos) {
+    }
+
+    /**
+     * Called when the items in the client are reset and loaded again.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Called when the client requests items with a different filter than the
+     * previous request.
+     */
+    default void filterChanged() {
+    }
+
+    /**
+     * Called when a request for items is ignored because the client has
+     * exceeded the request rate limit.
+     *
+     * @see ComboBox#setRequestRateLimit(int)
+     */
+    default void requestThrottled() {
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.LoggerFactory;
+
+import com.vaadin.flow.component.combobox.CircuitBreakerEvent.State;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.server.VaadinService;
+
+/**
+ * Runs the data provider queries of a combo box with a timeout, falling back
+ * to the last successful result of the same query when a query times out or
+ * fails. After {@link #FAILURE_THRESHOLD} consecutive failures, the circuit is
+ * opened and the cached results are used without querying for
+ * {@link #OPEN_MILLIS}, after which one query is tried again.
+ * <p>
+ * The queries are run in a pool of daemon threads shared by the combo boxes
+ * of a service, which is shut down when the service is destroyed. The pool
+ * runs at most {@link #MAX_THREADS} queries at once, and a query which
+ * doesn't fit in it fails right away. The queries are run without the UI and
+ * session of the calling thread, since a query which has timed out keeps
+ * running after the session has been unlocked.
+ *
+ * @param <T>
+ *            the type of the items
+ * @author Vaadin Ltd
+ */
+class FetchGuard<T> implements Serializable {
+
+    /**
+     * The number of consecutive failures which opens the circuit.
+     */
+    static final int FAILURE_THRESHOLD = 3;
+
+    /**
+     * The time the circuit stays open before the next query is tried.
+     */
+    static final long OPEN_MILLIS = 30_000;
+
+    /**
+     * The maximum number of queries running at once in a service.
+     */
+    static final int MAX_THREADS = 16;
+
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private static final int CACHE_SIZE = 100;
+
+    private static final class ResultCache<V>
+            extends LinkedHashMap<String, V> {
+        private ResultCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    }
+
+    // Service -> pool, the null key is for queries outside of a service
+    private static final Map<VaadinService, ExecutorService> executors = new WeakHashMap<>();
+
+    private final SerializableConsumer<State> stateListener;
+    private Duration timeout;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    private final ResultCache<Integer> sizes = new ResultCache<>();
+    private final ResultCache<List<T>> pages = new ResultCache<>();
+
+    /**
+     * Creates a new guard.
+     *
+     * @param timeout
+     *            the timeout of the queries, not {@code null}
+     * @param stateListener
+     *            called when the state of the circuit changes, not
+     *            {@code null}
+     */
+    FetchGuard(Duration timeout, SerializableConsumer<State> stateListener) {
+        this.timeout = timeout;
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Sets the timeout of the queries.
+     *
+     * @param timeout
+     *            the timeout, not {@code null}
+     */
+    void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets the timeout of the queries.
+     *
+     * @return the timeout
+     */
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Gets the state of the circuit.
+     *
+     * @return the state
+     */
+    State getState() {
+        return state;
+    }
+
+    /**
+     * Queries the size of the items matching a filter.
+     *
+     * @param filter
+     *            the filter text
+     * @param query
+     *            the query
+     * @return the size, the last size for the same filter if the query fails,
+     *         or 0 if there is none
+     */
+    int size(String filter, Supplier<Integer> query) {
+        return call(Objects.toString(filter, ""), query, sizes, 0);
+    }
+
+    /**
+     * Fetches a range of the items matching a filter.
+     *
+     * @param filter
+     *            the filter text
+     * @param offset
+     *            the offset of the range
+     * @param limit
+     *            the length of the range
+     * @param query
+     *            the query, returning all the fetched items
+     * @return the fetched items, the items last fetched for the same range if
+     *         the query fails, or an empty list if there are none
+     */
+    List<T> fetch(String filter, int offset, int limit,
+            Supplier<List<T>> query) {
+        String key = Objects.toString(filter, "") + '\n' + offset + '\n'
+                + limit;
+        return call(key, query, pages, Collections.emptyList());
+    }
+
+    /**
+     * Forgets the cached results, e.g. when the data provider changes.
+     */
+    void clear() {
+        sizes.clear();
+        pages.clear();
+    }
+
+    private <V> V call(String key, Supplier<V> query, Map<String, V> cache,
+            V empty) {
+        if (state == State.OPEN) {
+            if (currentTimeMillis() - openedAt < OPEN_MILLIS) {
+                return cache.getOrDefault(key, empty);
+            }
+            setState(State.HALF_OPEN);
+        }
+        try {
+            V result = runWithTimeout(query);
+            cache.put(key, result);
+            failures = 0;
+            if (state != State.CLOSED) {
+                setState(State.CLOSED);
+            }
+            return result;
+        } catch (TimeoutException e) {
+            LoggerFactory.getLogger(FetchGuard.class).warn(
+                    "Data provider query timed out after {} ms",
+                    timeout.toMillis());
+            failed();
+        } catch (ExecutionException e) {
+            LoggerFactory.getLogger(FetchGuard.class)
+                    .warn("Data provider query failed", e.getCause());
+            failed();
+        } catch (RejectedExecutionException e) {
+            LoggerFactory.getLogger(FetchGuard.class).warn(
+                    "Data provider query rejected, {} queries already running",
+                    MAX_THREADS);
+            failed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return cache.getOrDefault(key, empty);
+    }
+
+    private <V> V runWithTimeout(Supplier<V> query)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Future<V> future = getExecutor().submit(query::get);
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } finally {
+            // Interrupts the query if it's still running
+            future.cancel(true);
+        }
+    }
+
+    private void failed() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= FAILURE_THRESHOLD) {
+            openedAt = currentTimeMillis();
+            setState(State.OPEN);
+        }
+    }
+
+    private void setState(State state) {
+        this.state = state;
+        stateListener.accept(state);
+    }
+
+    private static ExecutorService getExecutor() {
+        VaadinService service = VaadinService.getCurrent();
+        synchronized (executors) {
+            ExecutorService executor = executors.get(service);
+            if (executor == null) {
+                executor = createExecutor();
+                executors.put(service, executor);
+                if (service != null) {
+                    service.addServiceDestroyListener(
+                            event -> shutdownExecutor(event.getSource()));
+                }
+            }
+            return executor;
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        // No queue, a query is rejected when all the threads are busy
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS,
+                MAX_THREADS, IDLE_THREAD_SECONDS, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "combobox-fetch-guard");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // No threads are kept alive when there are no queries
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void shutdownExecutor(VaadinService service) {
+        ExecutorService executor;
+        synchronized (executors) {
+            executor = executors.remove(service);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.function.SerializableFunction;
+import com.vaadin.flow.function.SerializablePredicate;
+
+/**
+ * Filters the items of a list data provider with an item filter, keeping the
+ * items that match the last filter text. When the filter text is extended,
+ * e.g. from "ab" to "abc", only the previously matching items are tested
+ * again, so typing a longer filter costs in proportion to the number of
+ * matches instead of the number of all the items.
+ * <p>
+ * This requires that any item which matches a filter text also matches all
+ * the prefixes of that text, as with a "contains" or "starts with" filter.
+ * <p>
+ * When a parallel threshold is set, lists of at least that many items are
+ * filtered in parallel in the common fork-join pool, keeping the order of the
+ * items. The filters must then be safe to use from other threads.
+ *
+ * @param <T>
+ *            the type of the items
+ * @author Vaadin Ltd
+ */
+class IncrementalItemFilter<T> implements Serializable {
+
+    private final ListDataProvider<T> dataProvider;
+    private final SerializableFunction<String, SerializablePredicate<T>> filterFactory;
+    private int parallelThreshold;
+
+    private String lastFilterText;
+    private List<T> lastMatches;
+
+    /**
+     * Creates a new incremental filter.
+     *
+     * @param dataProvider
+     *            the data provider of the items, not {@code null}
+     * @param filterFactory
+     *            function returning the filter matching the items for a
+     *            filter text, not {@code null}
+     */
+    IncrementalItemFilter(ListDataProvider<T> dataProvider,
+            SerializableFunction<String, SerializablePredicate<T>> filterFactory) {
+        this.dataProvider = dataProvider;
+        this.filterFactory = filterFactory;
+    }
+
+    /**
+     * Sets the number of items from which the items are filtered in parallel.
+     *
+     * @param parallelThreshold
+     *            the minimum number of items to filter in parallel, or zero to
+     *            always filter sequentially
+     */
+    void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Gets the items matching the given filter text, in the order of the data
+     * provider.
+     *
+     * @param filterText
+     *            the filter text, not {@code null} or empty
+     * @return the matching items
+     */
+    List<T> filter(String filterText) {
+        if (filterText.equals(lastFilterText)) {
+            return lastMatches;
+        }
+        SerializablePredicate<T> filter = filterFactory.apply(filterText);
+        List<T> matches;
+        if (lastFilterText != null && filterText.startsWith(lastFilterText)) {
+            matches = stream(lastMatches).filter(filter)
+                    .collect(Collectors.toList());
+        } else if (isParallel(dataProvider.getItems())) {
+            matches = fetchInParallel(filter);
+        } else {
+            // The filter and sorting of the data provider itself also apply
+            matches = dataProvider.fetch(new Query<>(filter))
+                    .collect(Collectors.toList());
+        }
+        lastFilterText = filterText;
+        lastMatches = matches;
+        return matches;
+    }
+
+    private List<T> fetchInParallel(SerializablePredicate<T> filter) {
+        // Same as ListDataProvider.fetch, but in parallel
+        SerializablePredicate<T> providerFilter = dataProvider.getFilter();
+        Stream<T> stream = dataProvider.getItems().parallelStream()
+                .filter(providerFilter == null ? filter
+                        : providerFilter.and(filter)::test);
+        Comparator<T> comparator = dataProvider.getSortComparator();
+        if (comparator != null) {
+            stream = stream.sorted(comparator);
+        }
+        return stream.collect(Collectors.toList());
+    }
+
+    private Stream<T> stream(Collection<T> items) {
+        return isParallel(items) ? items.parallelStream() : items.stream();
+    }
+
+    private boolean isParallel(Collection<T> items) {
+        return parallelThreshold > 0 && items.size() >= parallelThreshold;
+    }
+
+    /**
+     * Forgets the matches of the last filter text. Must be called when the
+     * items or their labels may have changed.
+     */
+    void clear() {
+        lastFilterText = null;
+        lastMatches = null;
+    }
+}
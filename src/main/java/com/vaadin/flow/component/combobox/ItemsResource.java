@@ -0,0 +1,254 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.vaadin.flow.function.SerializableSupplier;
+import com.vaadin.flow.server.RequestHandler;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinSession;
+
+/**
+ * Serves the JSON of all the items of the combo boxes of a session, so that
+ * the browser can cache a large static list instead of receiving it in the
+ * UIDL of each session.
+ * <p>
+ * Each list of items is identified by a version, which is used both in its
+ * URL and as its ETag. The URL doesn't depend on the UI or the session, so
+ * the browser may cache the items for a long time, across reloads, tabs and
+ * sessions, and a revalidation gets a 304 response without any content. The
+ * version is the only source of the content: the content of a version is
+ * never generated again, and a version no combo box of the session uses is
+ * not found.
+ * <p>
+ * The combo boxes of the session count their references to each version.
+ * The content of a version is kept in memory once for all the sessions, for
+ * as long as any session uses it.
+ *
+ * @author Vaadin Ltd
+ */
+class ItemsResource implements RequestHandler {
+
+    private static final String PATH = "VAADIN/dynamic/combobox-items/";
+
+    private static final String SUFFIX = ".json";
+
+    private static final long CACHE_MILLIS = TimeUnit.DAYS.toMillis(365);
+
+    // Version -> content, held by the sessions using it
+    private static final Map<String, WeakReference<byte[]>> contents = new HashMap<>();
+
+    private static final class Entry implements Serializable {
+        private byte[] content;
+        private int references;
+
+        private Entry(byte[] content) {
+            this.content = content;
+        }
+    }
+
+    // Version -> content used by the combo boxes of the session
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the items resource of the given session, creating it if needed.
+     *
+     * @param session
+     *            the locked session, not {@code null}
+     * @return the items resource of the session
+     */
+    static ItemsResource get(VaadinSession session) {
+        ItemsResource resource = session.getAttribute(ItemsResource.class);
+        if (resource == null) {
+            resource = new ItemsResource();
+            session.setAttribute(ItemsResource.class, resource);
+            session.addRequestHandler(resource);
+        }
+        return resource;
+    }
+
+    /**
+     * Gets the URL of the items of the given version.
+     *
+     * @param version
+     *            the version of the items
+     * @return the URL, relative to the base URL of the application
+     */
+    static String getUrl(String version) {
+        return PATH + version + SUFFIX;
+    }
+
+    /**
+     * Adds a reference to the items from a combo box of the session. With a
+     * given items version, the content of that version is generated only if
+     * no session has it. Otherwise the content is generated, and versioned by
+     * its hash.
+     *
+     * @param itemsVersion
+     *            the version of the items given by the application, or
+     *            {@code null} to version the items by their content
+     * @param generator
+     *            generates the JSON of the items, not {@code null}
+     * @return the version of the items, to be released with
+     *         {@link #release(String)}
+     */
+    String acquire(String itemsVersion,
+            SerializableSupplier<byte[]> generator) {
+        String version;
+        byte[] content;
+        if (itemsVersion == null) {
+            content = generator.get();
+            version = getVersion(content);
+        } else {
+            version = getVersion(
+                    itemsVersion.getBytes(StandardCharsets.UTF_8));
+            content = getShared(version);
+            if (content == null) {
+                content = generator.get();
+            }
+        }
+        byte[] shared = share(version, content);
+        entries.computeIfAbsent(version, key -> new Entry(shared)).references++;
+        return version;
+    }
+
+    /**
+     * Removes a reference to the items of the given version. The items are
+     * no longer served to the session when no combo box refers to them.
+     *
+     * @param version
+     *            the version returned by
+     *            {@link #acquire(String, SerializableSupplier)}
+     */
+    void release(String version) {
+        entries.computeIfPresent(version,
+                (key, entry) -> --entry.references > 0 ? entry : null);
+    }
+
+    /**
+     * Checks whether the items of the given version are used in the session.
+     *
+     * @param version
+     *            the version of the items
+     * @return {@code true} if a combo box of the session uses the version
+     */
+    boolean isUsed(String version) {
+        return entries.containsKey(version);
+    }
+
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        String path = request.getPathInfo();
+        if (path == null || !path.startsWith("/" + PATH)
+                || !path.endsWith(SUFFIX)) {
+            return false;
+        }
+        String version = path.substring(PATH.length() + 1,
+                path.length() - SUFFIX.length());
+        Entry entry = entries.get(version);
+        if (entry == null) {
+            response.sendError(404, "Unknown version of the items");
+            return true;
+        }
+        String etag = '"' + version + '"';
+        response.setHeader("ETag", etag);
+        response.setCacheTime(CACHE_MILLIS);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(304);
+            return true;
+        }
+        response.setContentType("application/json");
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(entry.content);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the content of the given version, if a session uses it.
+     *
+     * @param version
+     *            the version of the content
+     * @return the content, or {@code null} if no session uses it
+     */
+    static byte[] getShared(String version) {
+        synchronized (contents) {
+            WeakReference<byte[]> content = contents.get(version);
+            return content == null ? null : content.get();
+        }
+    }
+
+    /**
+     * Gets the version of the given content, which is a hash of it.
+     *
+     * @param content
+     *            the content, not {@code null}
+     * @return the version of the content
+     */
+    static String getVersion(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            StringBuilder version = new StringBuilder();
+            // Half of the hash is plenty for telling versions apart
+            for (int i = 0; i < hash.length / 2; i++) {
+                version.append(String.format("%02x", hash[i]));
+            }
+            return version.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Returns the shared content of the version, sharing the given content
+     * if there is none, so that only one copy stays in memory.
+     */
+    private static byte[] share(String version, byte[] content) {
+        synchronized (contents) {
+            byte[] shared = getShared(version);
+            if (shared != null) {
+                return shared;
+            }
+            contents.values().removeIf(reference -> reference.get() == null);
+            contents.put(version, new WeakReference<>(content));
+            return content;
+        }
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Share the content with the other sessions again
+        entries.forEach((version, entry) -> entry.content = share(version,
+                entry.content));
+    }
+}
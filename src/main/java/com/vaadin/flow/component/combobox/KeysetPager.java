@@ -0,0 +1,226 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.component.combobox.ComboBox.FetchItemsCallback;
+import com.vaadin.flow.component.combobox.ComboBox.KeysetFetchItemsCallback;
+import com.vaadin.flow.function.SerializableFunction;
+
+/**
+ * Translates offset based fetches to keyset fetches, by remembering the sort
+ * key of the item before each page boundary that has been fetched. A fetch
+ * starting at a known boundary asks for the items after that key. Otherwise
+ * the items are fetched from the closest known boundary before the offset,
+ * and the boundaries passed on the way are remembered. If that boundary is
+ * more than a few pages away and an offset fetch callback is given, the items
+ * are fetched with the offset instead, so that a jump deep into the items
+ * doesn't load all the items on the way.
+ *
+ * @param <T>
+ *            the type of the items
+ * @param <K>
+ *            the type of the sort keys
+ * @author Vaadin Ltd
+ */
+class KeysetPager<T, K> implements Serializable {
+
+    // The most pages skipped with a keyset fetch before using the offset
+    private static final int MAX_SKIPPED_PAGES = 4;
+
+    private final KeysetFetchItemsCallback<T, K> fetchItems;
+    private final FetchItemsCallback<T> offsetFetchItems;
+    private final SerializableFunction<T, K> sortKeyProvider;
+
+    private String filter;
+    // Offset -> sort key of the item before it
+    private final TreeMap<Integer, K> boundaries = new TreeMap<>();
+    // Incremented when the boundaries are forgotten
+    private int generation;
+
+    /**
+     * Creates a new pager.
+     *
+     * @param fetchItems
+     *            the callback fetching the items after a sort key, not
+     *            {@code null}
+     * @param sortKeyProvider
+     *            function returning the sort key of an item, not {@code null}
+     */
+    KeysetPager(KeysetFetchItemsCallback<T, K> fetchItems,
+            SerializableFunction<T, K> sortKeyProvider) {
+        this(fetchItems, sortKeyProvider, null);
+    }
+
+    /**
+     * Creates a new pager which fetches the items with their offset when the
+     * closest known boundary is too far away.
+     *
+     * @param fetchItems
+     *            the callback fetching the items after a sort key, not
+     *            {@code null}
+     * @param sortKeyProvider
+     *            function returning the sort key of an item, not {@code null}
+     * @param offsetFetchItems
+     *            the callback fetching the items at an offset, or
+     *            {@code null} to always fetch from a known boundary
+     */
+    KeysetPager(KeysetFetchItemsCallback<T, K> fetchItems,
+            SerializableFunction<T, K> sortKeyProvider,
+            FetchItemsCallback<T> offsetFetchItems) {
+        this.fetchItems = fetchItems;
+        this.sortKeyProvider = sortKeyProvider;
+        this.offsetFetchItems = offsetFetchItems;
+    }
+
+    /**
+     * Fetches the items in the given range.
+     *
+     * @param filter
+     *            the filter text, not {@code null}
+     * @param offset
+     *            the index of the first item to fetch
+     * @param limit
+     *            the maximum number of items to fetch
+     * @param pageSize
+     *            the interval of the boundaries to remember
+     * @return the fetched items
+     */
+    Stream<T> fetch(String filter, int offset, int limit, int pageSize) {
+        Fetch fetch = prepare(filter, offset, limit, pageSize);
+        List<T> items = fetch.load();
+        remember(fetch);
+        return items.stream();
+    }
+
+    /**
+     * Prepares a fetch of the items in the given range, without fetching them
+     * yet. The fetch doesn't use the state of the pager, so it can be loaded
+     * in another thread, e.g. when it's run with a timeout. The boundaries it
+     * passes are remembered with {@link #remember(Fetch)}.
+     *
+     * @param filter
+     *            the filter text, not {@code null}
+     * @param offset
+     *            the index of the first item to fetch
+     * @param limit
+     *            the maximum number of items to fetch
+     * @param pageSize
+     *            the interval of the boundaries to remember
+     * @return the prepared fetch
+     */
+    Fetch prepare(String filter, int offset, int limit, int pageSize) {
+        if (!filter.equals(this.filter)) {
+            clear();
+            this.filter = filter;
+        }
+        Map.Entry<Integer, K> start = boundaries.floorEntry(offset);
+        int skipped = offset - start.getKey();
+        if (offsetFetchItems != null
+                && skipped > MAX_SKIPPED_PAGES * pageSize) {
+            return new Fetch(filter, offset, null, 0, limit, pageSize, true);
+        }
+        return new Fetch(filter, start.getKey(), start.getValue(), skipped,
+                limit, pageSize, false);
+    }
+
+    /**
+     * Remembers the boundaries passed by a fetch which has been loaded. A
+     * fetch which hasn't finished loading, or which was prepared before the
+     * boundaries were forgotten, is ignored.
+     *
+     * @param fetch
+     *            the fetch prepared by this pager, not {@code null}
+     */
+    void remember(Fetch fetch) {
+        Map<Integer, K> passed = fetch.passedBoundaries;
+        if (passed != null && fetch.generation == generation) {
+            boundaries.putAll(passed);
+        }
+    }
+
+    /**
+     * Forgets the page boundaries, e.g. when the items have changed.
+     */
+    void clear() {
+        generation++;
+        boundaries.clear();
+        // The first page has no item before it
+        boundaries.put(0, null);
+    }
+
+    /**
+     * A fetch prepared by the pager. Only the final fields of the pager are
+     * used when it's loaded.
+     */
+    final class Fetch implements Serializable {
+        private final String filter;
+        private final int generation;
+        // The offset of the first item loaded
+        private final int from;
+        // The sort key of the item before it
+        private final K after;
+        private final int skipped;
+        private final int limit;
+        private final int pageSize;
+        private final boolean withOffset;
+
+        // Set by the thread loading the items once they're all loaded
+        private volatile Map<Integer, K> passedBoundaries;
+
+        private Fetch(String filter, int from, K after, int skipped,
+                int limit, int pageSize, boolean withOffset) {
+            this.filter = filter;
+            this.generation = KeysetPager.this.generation;
+            this.from = from;
+            this.after = after;
+            this.skipped = skipped;
+            this.limit = limit;
+            this.pageSize = pageSize;
+            this.withOffset = withOffset;
+        }
+
+        /**
+         * Fetches the items with the callbacks of the pager.
+         *
+         * @return the items in the range the fetch was prepared for
+         */
+        List<T> load() {
+            List<T> items = (withOffset
+                    ? offsetFetchItems.fetchItems(filter, from, limit)
+                    : fetchItems.fetchItems(filter, after, skipped + limit))
+                            .collect(Collectors.toList());
+
+            Map<Integer, K> passed = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                int next = from + i + 1;
+                if (next % pageSize == 0 || i == items.size() - 1) {
+                    passed.put(next, sortKeyProvider.apply(items.get(i)));
+                }
+            }
+            passedBoundaries = passed;
+            return items.subList(Math.min(skipped, items.size()),
+                    items.size());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+/**
+ * Adapter which reports the measurements of a {@link ComboBox} as named timers
+ * and counters, the way meter registries such as Micrometer expect them. For
+ * example:
+ *
+ * <pre>
+ * comboBox.setMetrics(new MeterComboBoxMetrics() {
+ *     &#64;Override
+ *     protected void recordTimer(String name, long nanos) {
+ *         registry.timer(name, "combobox", "country").record(nanos,
+ *                 TimeUnit.NANOSECONDS);
+ *     }
+ *
+ *     &#64;Override
+ *     protected void incrementCounter(String name, long amount) {
+ *         registry.counter(name, "combobox", "country").increment(amount);
+ *     }
+ * });
+ * </pre>
+ *
+ * @author Vaadin Ltd
+ */
+public abstract class MeterComboBoxMetrics implements ComboBoxMetrics {
+
+    /**
+     * Timer for the size queries.
+     */
+    public static final String SIZE = "combobox.size";
+
+    /**
+     * Timer for the fetches.
+     */
+    public static final String FETCH = "combobox.fetch";
+
+    /**
+     * Counter of the fetched items.
+     */
+    public static final String FETCHED_ITEMS = "combobox.fetch.items";
+
+    /**
+     * Counter of the items sent to the client.
+     */
+    public static final String PUSHED_ITEMS = "combobox.push.items";
+
+    /**
+     * Counter of the bytes of the items sent to the client.
+     */
+    public static final String PUSHED_BYTES = "combobox.push.bytes";
+
+    /**
+     * Timer for the update commits.
+     */
+    public static final String COMMIT = "combobox.commit";
+
+    /**
+     * Counter of the resets.
+     */
+    public static final String RESETS = "combobox.resets";
+
+    /**
+     * Counter of the filter changes.
+     */
+    public static final String FILTER_CHANGES = "combobox.filter.changes";
+
+    /**
+     * Counter of the requests ignored because of the rate limit.
+     */
+    public static final String THROTTLED_REQUESTS = "combobox.requests.throttled";
+
+    /**
+     * Records a duration to the timer with the given name.
+     *
+     * @param name
+     *            the name of the timer
+     * @param nanos
+     *            the duration in nanoseconds
+     */
+    protected abstract void recordTimer(String name, long nanos);
+
+    /**
+     * Increments the counter with the given name.
+     *
+     * @param name
+     *            the name of the counter
+     * @param amount
+     *            the amount to add
+     */
+    protected abstract void incrementCounter(String name, long amount);
+
+    @Override
+    public void sizeQueried(long nanos, int size) {
+        recordTimer(SIZE, nanos);
+    }
+
+    @Override
+    public void itemsFetched(long nanos, int itemCount) {
+        recordTimer(FETCH, nanos);
+        incrementCounter(FETCHED_ITEMS, itemCount);
+    }
+
+    @Override
+    public void itemsPushed(int itemCount, long bytes) {
+        incrementCounter(PUSHED_ITEMS, itemCount);
+        incrementCounter(PUSHED_BYTES, bytes);
+    }
+
+    @Override
+    public void updateCommitted(long nanos) {
+        recordTimer(COMMIT, nanos);
+    }
+
+    @Override
+    public void reset() {
+        incrementCounter(RESETS, 1);
+    }
+
+    @Override
+    public void filterChanged() {
+        incrementCounter(FILTER_CHANGES, 1);
+    }
+
+    @Override
+    public void requestThrottled() {
+        incrementCounter(THROTTLED_REQUESTS, 1);
+    }
+}
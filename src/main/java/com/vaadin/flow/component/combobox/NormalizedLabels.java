@@ -0,0 +1,109 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.vaadin.flow.function.SerializableFunction;
+
+/**
+ * The labels of a collection of items, normalized for accent and case
+ * insensitive matching. The labels are normalized once when this object is
+ * created, so each filter text only needs to be normalized once, instead of
+ * converting the label of every item for every filter text.
+ * <p>
+ * The keys are only read after they have been created, so they can be used
+ * from several threads at the same time.
+ *
+ * @param <T>
+ *            the type of the items
+ * @author Vaadin Ltd
+ */
+class NormalizedLabels<T> implements Serializable {
+
+    private static final Pattern COMBINING_MARKS = Pattern
+            .compile("\\p{InCombiningDiacriticalMarks}+");
+
+    private final SerializableFunction<T, String> labelGenerator;
+    private final Locale locale;
+    private final Map<T, String> keys;
+
+    /**
+     * Normalizes the labels of the given items.
+     *
+     * @param items
+     *            the items, not {@code null}
+     * @param labelGenerator
+     *            function returning the label of an item, not {@code null}
+     * @param locale
+     *            the locale used to fold the case, not {@code null}
+     */
+    NormalizedLabels(Collection<T> items,
+            SerializableFunction<T, String> labelGenerator, Locale locale) {
+        this.labelGenerator = labelGenerator;
+        this.locale = locale;
+        keys = new IdentityHashMap<>(items.size());
+        items.forEach(item -> keys.put(item,
+                normalize(labelGenerator.apply(item), locale)));
+    }
+
+    /**
+     * Gets the locale used to fold the case of the labels.
+     *
+     * @return the locale
+     */
+    Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Gets the normalized label of an item.
+     *
+     * @param item
+     *            the item
+     * @return the normalized label
+     */
+    String getKey(T item) {
+        String key = keys.get(item);
+        if (key == null) {
+            // Not one of the items given to the constructor
+            key = normalize(labelGenerator.apply(item), locale);
+        }
+        return key;
+    }
+
+    /**
+     * Normalizes a text by removing the accents and converting it to lower
+     * case, so e.g. "Zürich" becomes "zurich".
+     *
+     * @param text
+     *            the text to normalize, not {@code null}
+     * @param locale
+     *            the locale used to fold the case, not {@code null}
+     * @return the normalized text
+     */
+    static String normalize(String text, Locale locale) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .toLowerCase(locale);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import elemental.json.Json;
+
+/**
+ * Writes a trace line for each query that a {@link ComboBox} makes to its
+ * data provider, and for each range requested by the client. The lines are
+ * written to the {@code com.vaadin.flow.component.combobox.ComboBox.queries}
+ * logger at the debug level, as space separated {@code key=value} pairs, e.g.
+ *
+ * <pre>
+ * query=fetch id="country" filter="fin" offset=0 limit=50 count=2 nanos=81200
+ * </pre>
+ *
+ * @author Vaadin Ltd
+ */
+final class QueryTracer {
+
+    static final String LOGGER_NAME = ComboBox.class.getName() + ".queries";
+
+    /**
+     * The client requested a range of items.
+     */
+    static final String REQUEST = "request";
+
+    /**
+     * The size of the data set was queried.
+     */
+    static final String SIZE = "size";
+
+    /**
+     * Items were fetched.
+     */
+    static final String FETCH = "fetch";
+
+    private QueryTracer() {
+        // Only static methods
+    }
+
+    /**
+     * Checks whether the queries are traced.
+     *
+     * @return {@code true} if the queries are traced
+     */
+    static boolean isEnabled() {
+        return getLogger().isDebugEnabled();
+    }
+
+    /**
+     * Traces a query, if tracing is enabled.
+     *
+     * @param comboBox
+     *            the combo box making the query
+     * @param query
+     *            the type of the query, e.g. {@link #FETCH}
+     * @param filter
+     *            the filter text, or {@code null} if not filtered
+     * @param offset
+     *            the offset of the query, ignored for {@link #SIZE} queries
+     * @param limit
+     *            the limit of the query, ignored for {@link #SIZE} queries
+     * @param count
+     *            the number of items returned, or the size for {@link #SIZE}
+     *            queries, ignored for {@link #REQUEST}
+     * @param nanos
+     *            the time taken by the query in nanoseconds, ignored for
+     *            {@link #REQUEST}
+     */
+    static void trace(ComboBox<?> comboBox, String query, String filter,
+            int offset, int limit, int count, long nanos) {
+        Logger logger = getLogger();
+        if (logger.isDebugEnabled()) {
+            logger.debug(format(comboBox, query, filter, offset, limit, count,
+                    nanos));
+        }
+    }
+
+    static String format(ComboBox<?> comboBox, String query, String filter,
+            int offset, int limit, int count, long nanos) {
+        StringBuilder line = new StringBuilder("query=").append(query);
+        comboBox.getId().ifPresent(id -> line.append(" id=")
+                .append(Json.create(id).toJson()));
+        line.append(" filter=").append(
+                filter == null ? "null" : Json.create(filter).toJson());
+        if (!SIZE.equals(query)) {
+            line.append(" offset=").append(offset).append(" limit=")
+                    .append(limit);
+        }
+        if (!REQUEST.equals(query)) {
+            line.append(" count=").append(count).append(" nanos=")
+                    .append(nanos);
+        }
+        return line.toString();
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(LOGGER_NAME);
+    }
+}
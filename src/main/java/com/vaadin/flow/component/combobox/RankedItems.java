@@ -0,0 +1,116 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+
+/**
+ * Selects the best ranked items of a list without sorting all of them. The
+ * candidates are kept in a heap bounded to the number of selected items, so
+ * selecting the first {@code k} of {@code n} items takes {@code O(n log k)}
+ * time.
+ *
+ * @author Vaadin Ltd
+ */
+final class RankedItems {
+
+    /**
+     * The filter text is a prefix of the label.
+     */
+    static final int PREFIX = 0;
+
+    /**
+     * The filter text is a prefix of a word in the label.
+     */
+    static final int WORD_PREFIX = 1;
+
+    /**
+     * The filter text is elsewhere in the label.
+     */
+    static final int SUBSTRING = 2;
+
+    private RankedItems() {
+        // Only static methods
+    }
+
+    /**
+     * Ranks a label which contains the filter text. Both must have been
+     * converted to the same case.
+     *
+     * @param label
+     *            the label of an item, not {@code null}
+     * @param filterText
+     *            the filter text, not {@code null}
+     * @return {@link #PREFIX}, {@link #WORD_PREFIX} or {@link #SUBSTRING}
+     */
+    static int rank(String label, String filterText) {
+        int index = label.indexOf(filterText);
+        if (index == 0) {
+            return PREFIX;
+        }
+        while (index > 0) {
+            if (!Character.isLetterOrDigit(label.charAt(index - 1))) {
+                return WORD_PREFIX;
+            }
+            index = label.indexOf(filterText, index + 1);
+        }
+        return SUBSTRING;
+    }
+
+    /**
+     * Gets the best ranked items, ordered by their rank. Items with the same
+     * rank keep their order in the list.
+     *
+     * @param items
+     *            the items to select from, not {@code null}
+     * @param ranking
+     *            function returning the rank of an item, lower being better
+     * @param count
+     *            the maximum number of items to select
+     * @return the selected items
+     */
+    static <T> List<T> top(List<T> items, ToIntFunction<? super T> ranking,
+            int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        // Rank in the high bits and index in the low bits, so the natural
+        // order of the entries is by rank and then by index. The worst entry
+        // is at the head of the heap.
+        PriorityQueue<Long> heap = new PriorityQueue<>(
+                Math.min(count, items.size()) + 1,
+                Collections.reverseOrder());
+        for (int i = 0; i < items.size(); i++) {
+            long entry = (long) ranking.applyAsInt(items.get(i)) << 32 | i;
+            if (heap.size() < count) {
+                heap.add(entry);
+            } else if (entry < heap.peek()) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+
+        List<Long> entries = new ArrayList<>(heap);
+        Collections.sort(entries);
+        List<T> top = new ArrayList<>(entries.size());
+        entries.forEach(entry -> top.add(items.get(entry.intValue())));
+        return top;
+    }
+}
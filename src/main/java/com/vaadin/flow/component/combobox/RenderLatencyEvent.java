@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import com.vaadin.flow.component.ComponentEvent;
+
+/**
+ * Event fired for each latency measured by the browser while the user works
+ * with the drop down of a {@link ComboBox}. The latencies are measured from
+ * the user's action until the items have been given to the drop down, so they
+ * include the round trip to the server.
+ * <p>
+ * The browser reports the latencies in batches, so the events are fired some
+ * time after the measured actions.
+ *
+ * @param <T>
+ *            the type of the items in the combo box
+ * @author Vaadin Ltd
+ * @see ComboBox#addRenderLatencyListener(com.vaadin.flow.component.ComponentEventListener)
+ */
+public class RenderLatencyEvent<T> extends ComponentEvent<ComboBox<T>> {
+
+    /**
+     * The user action which was measured.
+     */
+    public enum Type {
+        /**
+         * The filter was changed, measured until the first page of the
+         * matching items was shown.
+         */
+        FILTER,
+
+        /**
+         * The drop down was scrolled to a page which wasn't loaded, measured
+         * until the page was filled.
+         */
+        SCROLL;
+    }
+
+    private final Type type;
+    private final String filter;
+    private final int page;
+    private final double duration;
+
+    /**
+     * Creates a new event.
+     *
+     * @param source
+     *            the combo box
+     * @param fromClient
+     *            <code>true</code> if the event originated from the client
+     * @param type
+     *            the measured action
+     * @param filter
+     *            the filter text
+     * @param page
+     *            the index of the page
+     * @param duration
+     *            the latency in milliseconds
+     */
+    public RenderLatencyEvent(ComboBox<T> source, boolean fromClient,
+            Type type, String filter, int page, double duration) {
+        super(source, fromClient);
+        this.type = type;
+        this.filter = filter;
+        this.page = page;
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the measured action.
+     *
+     * @return the type of the action
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the filter text which was used for the items.
+     *
+     * @return the filter text
+     */
+    public String getFilter() {
+        return filter;
+    }
+
+    /**
+     * Gets the index of the page which was loaded.
+     *
+     * @return the page index
+     */
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * Gets the measured latency.
+     *
+     * @return the latency in milliseconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.vaadin.flow.data.provider.DataGenerator;
+
+import elemental.json.JsonObject;
+
+/**
+ * Data generator wrapping the rendering of a component renderer, so that the
+ * rendered components are reused instead of being created again for each
+ * reset of the data communicator, e.g. when the filter changes.
+ * <p>
+ * The rendered components are kept as long as the items keep their keys.
+ * When the item ids are used as the keys, the components of the items which
+ * are no longer active are kept as well, up to the given cache size, and the
+ * least recently used ones are destroyed first.
+ *
+ * @param <T>
+ *            the type of the items in the combo box
+ * @author Vaadin Ltd
+ */
+class RenderedComponentCache<T> implements DataGenerator<T> {
+
+    private final DataGenerator<T> rendering;
+    private final ComboBoxKeyMapper<T> keyMapper;
+    private int cacheSize;
+
+    private final LinkedHashMap<String, T> inactiveItems = new LinkedHashMap<>(
+            16, 0.75f, true);
+
+    /**
+     * Creates a new cache for the given rendering.
+     *
+     * @param rendering
+     *            the data generator of the component rendering, not
+     *            {@code null}
+     * @param keyMapper
+     *            the key mapper used by the rendering, not {@code null}
+     * @param cacheSize
+     *            the maximum number of components kept for items which are no
+     *            longer active, zero to disable caching
+     */
+    RenderedComponentCache(DataGenerator<T> rendering,
+            ComboBoxKeyMapper<T> keyMapper, int cacheSize) {
+        this.rendering = rendering;
+        this.keyMapper = keyMapper;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Sets the maximum number of components kept for items which are no longer
+     * active. Zero disables caching, and destroys the cached components.
+     *
+     * @param cacheSize
+     *            the maximum number of cached components
+     */
+    void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        if (cacheSize == 0) {
+            clear();
+        } else {
+            evict();
+        }
+    }
+
+    /**
+     * Destroys all the rendered components, including the cached ones. Must be
+     * called when the keys of the items change.
+     */
+    void clear() {
+        inactiveItems.clear();
+        rendering.destroyAllData();
+    }
+
+    @Override
+    public void generateData(T item, JsonObject jsonObject) {
+        if (!inactiveItems.isEmpty()) {
+            inactiveItems.remove(keyMapper.key(item));
+        }
+        rendering.generateData(item, jsonObject);
+    }
+
+    @Override
+    public void refreshData(T item) {
+        rendering.refreshData(item);
+    }
+
+    @Override
+    public void destroyData(T item) {
+        // Generated keys are released right after this, so the component
+        // could never be found again
+        if (cacheSize == 0 || keyMapper.getItemIdProvider() == null) {
+            rendering.destroyData(item);
+            return;
+        }
+        inactiveItems.put(keyMapper.key(item), item);
+        evict();
+    }
+
+    @Override
+    public void destroyAllData() {
+        // Called when the data communicator is reset, the items keep their
+        // keys so the components can be reused when the items are sent again
+        if (cacheSize == 0) {
+            clear();
+        }
+    }
+
+    private void evict() {
+        if (inactiveItems.size() <= cacheSize) {
+            return;
+        }
+        List<T> evicted = new ArrayList<>();
+        Iterator<Entry<String, T>> iterator = inactiveItems.entrySet()
+                .iterator();
+        while (inactiveItems.size() - evicted.size() > cacheSize) {
+            evicted.add(iterator.next().getValue());
+        }
+        evicted.forEach(item -> {
+            inactiveItems.remove(keyMapper.key(item));
+            rendering.destroyData(item);
+        });
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.flow.data.provider.DataGenerator;
+import com.vaadin.flow.internal.JsonUtils;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Cache of the data generated for immutable items, shared by all the combo
+ * boxes using it, in all the sessions. Meant for reference data, such as
+ * countries or currencies, which is shown the same way to every user: the
+ * labels and the template properties of each item are then generated only
+ * once, instead of once per combo box.
+ * <p>
+ * Use one cache for each set of combo boxes which show the same items in the
+ * same way, typically stored in a static field:
+ *
+ * <pre>
+ * private static final SharedItemDataCache&lt;Country&gt; COUNTRIES =
+ *         new SharedItemDataCache&lt;&gt;();
+ * ...
+ * comboBox.setSharedItemDataCache(COUNTRIES);
+ * </pre>
+ *
+ * The items must not change, and must implement {@code equals} and
+ * {@code hashCode}. Since the data is cached by the item only, each combo box
+ * checks that it generates the same data as the cache holds for the first
+ * cached item it shows, and fails with an {@link IllegalStateException} if
+ * not. Items rendered with a
+ * {@link com.vaadin.flow.data.renderer.ComponentRenderer} are not cached,
+ * since the rendered components belong to a single UI.
+ * <p>
+ * The cached data is not serialized with the sessions. A deserialized session
+ * gets an empty cache of its own.
+ *
+ * @param <T>
+ *            the type of the items
+ * @author Vaadin Ltd
+ * @see ComboBox#setSharedItemDataCache(SharedItemDataCache)
+ */
+public class SharedItemDataCache<T> implements Serializable {
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final int maximumSize;
+    private transient ConcurrentHashMap<T, JsonObject> data = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache holding the data of at most 10000 items.
+     */
+    public SharedItemDataCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a new cache holding the data of at most the given number of
+     * items. The data of any further items is generated each time it's
+     * needed.
+     *
+     * @param maximumSize
+     *            the maximum number of cached items, positive
+     */
+    public SharedItemDataCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Maximum size should be positive.");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Removes the cached data of all the items, e.g. when the reference data
+     * has been updated. The combo boxes using the cache should be refreshed
+     * afterwards.
+     */
+    public void clear() {
+        data.clear();
+    }
+
+    /**
+     * Gets the number of items whose data is cached.
+     *
+     * @return the number of cached items
+     */
+    int size() {
+        return data.size();
+    }
+
+    /**
+     * Puts the data of the given item to the given JSON object, generating
+     * and caching it first if it's not cached yet.
+     *
+     * @param item
+     *            the item, not {@code null}
+     * @param jsonObject
+     *            the JSON object to put the data to, not {@code null}
+     * @param generator
+     *            the data generator used when the data is not cached, not
+     *            {@code null}
+     */
+    void generateData(T item, JsonObject jsonObject,
+            DataGenerator<T> generator) {
+        JsonObject cached = data.get(item);
+        if (cached == null) {
+            cached = Json.createObject();
+            generator.generateData(item, cached);
+            if (data.size() < maximumSize) {
+                data.putIfAbsent(item, cached);
+            }
+        }
+        // The cached values are never modified, so they can be shared
+        for (String key : cached.keys()) {
+            jsonObject.put(key, cached.<JsonValue> get(key));
+        }
+    }
+
+    /**
+     * Checks that the given generator generates the same data for the given
+     * item as the cached data, if there is any.
+     *
+     * @param item
+     *            the item, not {@code null}
+     * @param generator
+     *            the data generator of a combo box, not {@code null}
+     * @return {@code true} if the cached data was checked, {@code false} if
+     *         the item isn't cached
+     * @throws IllegalStateException
+     *             if the generator generates different data
+     */
+    boolean verify(T item, DataGenerator<T> generator) {
+        JsonObject cached = data.get(item);
+        if (cached == null) {
+            return false;
+        }
+        JsonObject generated = Json.createObject();
+        generator.generateData(item, generated);
+        if (!JsonUtils.jsonEquals(cached, generated)) {
+            throw new IllegalStateException("The cached data of the item "
+                    + item + " differs from the data generated for it. "
+                    + "The combo boxes sharing an item data cache must "
+                    + "show the items the same way.");
+        }
+        return true;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        data = new ConcurrentHashMap<>();
+    }
+}
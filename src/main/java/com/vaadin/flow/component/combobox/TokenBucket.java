@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.Serializable;
+
+/**
+ * Token bucket limiting the rate of requests. The bucket holds at most one
+ * second worth of tokens, so short bursts up to the rate are allowed, and is
+ * refilled continuously at the rate.
+ *
+ * @author Vaadin Ltd
+ */
+class TokenBucket implements Serializable {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final int capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a new full bucket.
+     *
+     * @param tokensPerSecond
+     *            the rate at which the tokens are added, positive
+     */
+    TokenBucket(int tokensPerSecond) {
+        capacity = tokensPerSecond;
+        tokens = capacity;
+        lastRefill = nanoTime();
+    }
+
+    /**
+     * Takes a token from the bucket, if there is one.
+     *
+     * @return {@code true} if a token was taken, {@code false} if the bucket
+     *         is empty
+     */
+    boolean tryAcquire() {
+        long now = nanoTime();
+        // The clock may differ after the session has moved to another server
+        long elapsed = Math.max(0, now - lastRefill);
+        tokens = Math.min(capacity,
+                tokens + elapsed * capacity / NANOS_PER_SECOND);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Gets the number of tokens added per second.
+     *
+     * @return the rate of the tokens
+     */
+    int getTokensPerSecond() {
+        return capacity;
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+}
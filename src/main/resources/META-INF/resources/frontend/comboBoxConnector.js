@@ -1,4 +1,9 @@
 window.Vaadin.Flow.comboBoxConnector = {
+  // Item lists persisted in IndexedDB, by their version
+  itemsDatabase: 'vaadin-combo-box-items',
+  itemsStore: 'items',
+  persistedVersions: 5,
+
   initLazy: function (comboBox) {
     // Check whether the connector was already initialized for the ComboBox
     if (comboBox.$connector) {
@@ -11,6 +16,29 @@ window.Vaadin.Flow.comboBoxConnector = {
     let cache = {};
     let firstPage;
     let lastFilter = '';
+    // Whether the cache has been cleared for a new filter since the last
+    // request, the server then has to send the whole range again
+    let filterChangedSinceRequest = false;
+    // The last request, sent again if the server throttled it
+    let lastRequest;
+    let retryTimeout;
+
+    // Render latencies are only measured when the server listens to them
+    let latencyMarks = {};
+    let latencies = [];
+    let latencyReportTimeout;
+
+    // Update ids not yet confirmed to the server, when confirmations are
+    // deferred to the next request
+    let pendingConfirmations = [];
+    let confirmTimeout;
+
+    // All the items, when they are loaded as a resource instead of page by
+    // page, and the items matching the last filter
+    let resourceUrl;
+    let resourceItems;
+    let resourceCallbacks = [];
+    let resourceMatches;
 
     comboBox.size = 0; // To avoid NaN here and there before we get proper data
 
@@ -24,14 +52,58 @@ window.Vaadin.Flow.comboBoxConnector = {
       if (filterChanged) {
         cache = {};
         lastFilter = params.filter;
+        filterChangedSinceRequest = true;
+        latencyMarks = {};
+      }
+
+      if (comboBox._reportRenderLatency && !latencyMarks[params.page]
+        && (filterChanged || !cache[params.page])) {
+        latencyMarks[params.page] = {
+          type: filterChanged ? 'filter' : 'scroll',
+          filter: params.filter,
+          start: performance.now()
+        };
+      }
+
+      const itemsUrl = comboBox.getAttribute('items-url');
+      if (itemsUrl) {
+        loadResourceItems(itemsUrl, items => {
+          if (filterChanged || !resourceMatches) {
+            resourceMatches = items.filter(item =>
+              comboBox.$connector.filter(item, params.filter));
+            if (comboBox._rankedFilter && params.filter) {
+              resourceMatches = rankItems(resourceMatches, params.filter);
+            }
+          }
+          const start = params.page * comboBox.pageSize;
+          callback(resourceMatches.slice(start, start + comboBox.pageSize),
+            resourceMatches.length);
+          recordLatency(params.page);
+        });
+        return;
       }
 
       if (comboBox._clientSideFilter && firstPage) {
         // Data size is less than page size and client has all the data,
         // so client-side filtering is used
-        const filteredItems = firstPage.filter(item =>
+        let filteredItems = firstPage.filter(item =>
           comboBox.$connector.filter(item, comboBox.filter));
+        if (comboBox._rankedFilter && comboBox.filter) {
+          filteredItems = rankItems(filteredItems, comboBox.filter);
+        }
         callback(filteredItems, filteredItems.size);
+        recordLatency(params.page);
+        return;
+      }
+
+      if (params.filter && params.filter.length < comboBox._minimumFilterLength) {
+        // Too short filters are not sent to the server, which would not
+        // return any items for them anyway
+        if (this._debouncer) {
+          this._debouncer.cancel();
+        }
+        delete latencyMarks[params.page];
+        callback([], 0);
         return;
       }
 
@@ -39,34 +111,271 @@ window.Vaadin.Flow.comboBoxConnector = {
         // This may happen after skipping pages by scrolling fast
         commitPage(params.page, callback);
       } else {
-        const upperLimit = params.pageSize * (params.page + 1);
-
         if (filterChanged) {
           this._debouncer = Polymer.Debouncer.debounce(
             this._debouncer,
             Polymer.Async.timeOut.after(500),
-            () => {
-              comboBox.$server.setRequestedRange(0, upperLimit, params.filter);
-              if (params.filter === '') {
-                // Fixes the case when the filter changes 
-                // from '' to something else and back to '' 
-                // within debounce timeout, and the
-                // DataCommunicator thinks it doesn't need to send data
-                comboBox.$server.resetDataCommunicator();
-              }
-            });
+            () => requestRange(params.page, params.filter));
         }
         else {
-          comboBox.$server.setRequestedRange(0, upperLimit, params.filter);
+          requestRange(params.page, params.filter);
         }
 
         pageCallbacks[params.page] = callback;
       }
     }
 
+    const loadResourceItems = function (url, onLoad) {
+      if (url === resourceUrl && resourceItems) {
+        onLoad(resourceItems);
+        return;
+      }
+      resourceCallbacks.push(onLoad);
+      if (url === resourceUrl) {
+        // Already loading
+        return;
+      }
+      resourceUrl = url;
+      resourceItems = undefined;
+      resourceMatches = undefined;
+
+      const version = comboBox.getAttribute('items-version');
+      if (!version) {
+        requestResourceItems(url);
+        return;
+      }
+      readPersistedItems(version, items => {
+        if (items) {
+          resourceItemsLoaded(url, items);
+        } else {
+          requestResourceItems(url, version);
+        }
+      });
+    }
+
+    const requestResourceItems = function (url, version) {
+      // The browser answers from its cache, or revalidates with the ETag
+      const request = new XMLHttpRequest();
+      request.open('GET', url);
+      request.onload = () => {
+        if (request.status !== 200) {
+          resourceItemsLoaded(url, []);
+          return;
+        }
+        const items = JSON.parse(request.responseText);
+        if (version) {
+          persistItems(version, items);
+        }
+        resourceItemsLoaded(url, items);
+      };
+      request.send();
+    }
+
+    const resourceItemsLoaded = function (url, items) {
+      if (url !== resourceUrl) {
+        // A newer version has been requested meanwhile
+        return;
+      }
+      resourceItems = items;
+      const callbacks = resourceCallbacks;
+      resourceCallbacks = [];
+      for (let i = 0; i < callbacks.length; i++) {
+        callbacks[i](resourceItems);
+      }
+    }
+
+    const openItemsDatabase = function (onOpen) {
+      const connector = window.Vaadin.Flow.comboBoxConnector;
+      let request;
+      try {
+        request = window.indexedDB.open(connector.itemsDatabase, 1);
+      } catch (e) {
+        // Not supported, or disabled e.g. in private browsing
+        onOpen();
+        return;
+      }
+      let answered = false;
+      const answer = database => {
+        if (answered) {
+          // Opened after giving up waiting for it
+          if (database) {
+            database.close();
+          }
+          return;
+        }
+        answered = true;
+        onOpen(database);
+      };
+      request.onupgradeneeded = () => request.result
+        .createObjectStore(connector.itemsStore, { keyPath: 'version' });
+      request.onsuccess = () => {
+        const database = request.result;
+        // Don't block another tab from upgrading the database
+        database.onversionchange = () => database.close();
+        answer(database);
+      };
+      request.onerror = () => answer();
+      // Another tab has the database open with an older version, so the
+      // items are requested from the server instead of waiting for it
+      request.onblocked = () => answer();
+    }
+
+    const closeWhenDone = function (database, transaction) {
+      // Each read and persist opens a connection of its own
+      transaction.oncomplete = () => database.close();
+      transaction.onabort = () => database.close();
+      return transaction;
+    }
+
+    const readPersistedItems = function (version, onRead) {
+      openItemsDatabase(database => {
+        if (!database) {
+          onRead();
+          return;
+        }
+        const storeName = window.Vaadin.Flow.comboBoxConnector.itemsStore;
+        const request = closeWhenDone(database, database.transaction(storeName))
+          .objectStore(storeName).get(version);
+        request.onsuccess = () => onRead(request.result && request.result.items);
+        request.onerror = () => onRead();
+      });
+    }
+
+    const persistItems = function (version, items) {
+      openItemsDatabase(database => {
+        if (!database) {
+          return;
+        }
+        const connector = window.Vaadin.Flow.comboBoxConnector;
+        const store = closeWhenDone(database,
+          database.transaction(connector.itemsStore, 'readwrite'))
+          .objectStore(connector.itemsStore);
+        store.put({ version: version, stored: Date.now(), items: items });
+
+        // Drop all but the most recently stored versions. IE11 lacks
+        // getAll(), so the entries are collected with a cursor.
+        const entries = [];
+        const cursor = store.openCursor();
+        cursor.onsuccess = () => {
+          if (cursor.result) {
+            entries.push({
+              version: cursor.result.value.version,
+              stored: cursor.result.value.stored
+            });
+            cursor.result.continue();
+            return;
+          }
+          entries.sort((a, b) => b.stored - a.stored);
+          for (let i = connector.persistedVersions; i < entries.length; i++) {
+            store.delete(entries[i].version);
+          }
+        };
+      });
+    }
+
+    const requestRange = function (page, filter, reset) {
+      const retainedPageCount = comboBox._retainedPageCount;
+      if (!(retainedPageCount > 0)) {
+        // Keep everything from the first page on
+        sendRequestedRange(0, comboBox.pageSize * (page + 1), filter, reset);
+        return;
+      }
+      // Only keep a window of pages around the requested one, the server
+      // drops everything outside of it with $connector.clear
+      const startPage = Math.max(0, page - retainedPageCount);
+      const endPage = page + retainedPageCount;
+
+      // Requests for pages outside of the window will not be answered anymore
+      let outstandingRequests = Object.getOwnPropertyNames(pageCallbacks);
+      for (let i = 0; i < outstandingRequests.length; i++) {
+        let outstandingPage = parseInt(outstandingRequests[i]);
+        if (outstandingPage < startPage || outstandingPage > endPage) {
+          clearPageCallback(outstandingPage);
+        }
+      }
+
+      sendRequestedRange(startPage * comboBox.pageSize,
+        (endPage - startPage + 1) * comboBox.pageSize, filter, reset);
+    }
+
+    const sendRequestedRange = function (start, length, filter, reset) {
+      reset = reset || filterChangedSinceRequest;
+      lastRequest = { start, length, filter, reset };
+      if (reset) {
+        // The whole range is sent again, in the same request. Needed also
+        // when the filter changes e.g. from '1' to '12' and back to '1'
+        // within the debounce timeout, since the DataCommunicator then
+        // thinks it doesn't need to send data.
+        filterChangedSinceRequest = false;
+        comboBox.$server.resetRequestedRange(start, length, filter);
+      } else if (pendingConfirmations.length > 0) {
+        // Piggyback the confirmations instead of a request of their own
+        const ids = takePendingConfirmations();
+        comboBox.$server.setRequestedRangeAndConfirmUpdates(start, length, filter, ids);
+      } else {
+        comboBox.$server.setRequestedRange(start, length, filter);
+      }
+    }
+
+    const normalize = function (text) {
+      text = text.toString();
+      if (comboBox._accentInsensitiveFilter && text.normalize) {
+        // Remove the accents, same as NormalizedLabels on the server. IE11
+        // has no normalize(), so accents are compared as they are there.
+        text = text.normalize('NFD').replace(/[\u0300-\u036f]/g, '');
+      }
+      return text.toLowerCase();
+    }
+
     comboBox.$connector.filter = function (item, filter) {
-      filter = filter ? filter.toString().toLowerCase() : '';
-      return comboBox._getItemLabel(item).toString().toLowerCase().indexOf(filter) > -1;
+      filter = filter ? normalize(filter) : '';
+      return normalize(comboBox._getItemLabel(item)).indexOf(filter) > -1;
+    }
+
+    // Letters and digits continue a word, same as Character.isLetterOrDigit
+    // in RankedItems on the server. IE11 has no Unicode property escapes, so
+    // only cased letters and ASCII digits continue a word there.
+    const wordCharacter = (function () {
+      try {
+        return new RegExp('[\\p{L}\\p{Nd}]', 'u');
+      } catch (e) {
+        return undefined;
+      }
+    })();
+
+    const continuesWord = function (character) {
+      if (wordCharacter) {
+        return wordCharacter.test(character);
+      }
+      return character.toLowerCase() !== character.toUpperCase()
+        || /[0-9]/.test(character);
+    }
+
+    // Same ranks as RankedItems on the server: prefix, word prefix, other
+    const rank = function (label, filter) {
+      let index = label.indexOf(filter);
+      if (index === 0) {
+        return 0;
+      }
+      while (index > 0) {
+        if (!continuesWord(label.charAt(index - 1))) {
+          return 1;
+        }
+        index = label.indexOf(filter, index + 1);
+      }
+      return 2;
+    }
+
+    const rankItems = function (items, filter) {
+      filter = normalize(filter);
+      return items
+        .map((item, index) => ({
+          item: item,
+          index: index,
+          rank: rank(normalize(comboBox._getItemLabel(item)), filter)
+        }))
+        .sort((a, b) => a.rank - b.rank || a.index - b.index)
+        .map(ranked => ranked.item);
     }
 
     comboBox.$connector.set = function (index, items) {
@@ -99,14 +408,49 @@ window.Vaadin.Flow.comboBoxConnector = {
       }
     }
 
+    comboBox.$connector.clear = function (index, length) {
+      const firstPageToClear = Math.floor(index / comboBox.pageSize);
+      const lastPageToClear = Math.floor((index + length - 1) / comboBox.pageSize);
+      const placeholder = new Vaadin.ComboBoxPlaceholder();
+
+      for (let page = firstPageToClear; page <= lastPageToClear; page++) {
+        delete cache[page];
+        clearPageCallback(page);
+      }
+
+      const items = comboBox.filteredItems || [];
+      const end = Math.min(index + length, items.length);
+      for (let i = index; i < end; i++) {
+        if (!(items[i] instanceof Vaadin.ComboBoxPlaceholder)) {
+          comboBox.set('filteredItems.' + i, placeholder);
+        }
+      }
+    };
+
     comboBox.$connector.updateSize = function (newSize) {
-      comboBox.size = newSize;
+      if (!comboBox.getAttribute('items-url')) {
+        // Otherwise the size is that of the items loaded as a resource
+        comboBox.size = newSize;
+      }
+    };
+
+    comboBox.$connector.throttled = function (retryDelay) {
+      // The server ignored the request because of its rate limit
+      const request = lastRequest;
+      clearTimeout(retryTimeout);
+      retryTimeout = setTimeout(() => {
+        if (request === lastRequest) {
+          sendRequestedRange(request.start, request.length, request.filter, request.reset);
+        }
+      }, retryDelay);
     };
 
     comboBox.$connector.reset = function () {
       pageCallbacks = {};
+      latencyMarks = {};
       cache = {};
       firstPage = undefined;
+      resourceMatches = undefined;
       comboBox.clearCache();
     };
 
@@ -126,7 +470,44 @@ window.Vaadin.Flow.comboBoxConnector = {
       }
 
       // Let server know we're done
-      comboBox.$server.confirmUpdate(id);
+      if (comboBox._deferUpdateConfirmation) {
+        pendingConfirmations.push(id);
+        if (!confirmTimeout) {
+          confirmTimeout = setTimeout(sendPendingConfirmations, 1000);
+        }
+      } else {
+        comboBox.$server.confirmUpdate(id);
+      }
+    }
+
+    const sendPendingConfirmations = function () {
+      if (pendingConfirmations.length > 0) {
+        comboBox.$server.confirmUpdates(takePendingConfirmations());
+      }
+    }
+
+    const takePendingConfirmations = function () {
+      clearTimeout(confirmTimeout);
+      confirmTimeout = undefined;
+      const ids = pendingConfirmations;
+      pendingConfirmations = [];
+      return ids;
+    }
+
+    const clearPageCallback = function (page) {
+      const callback = pageCallbacks[page];
+      if (callback) {
+        // Resolve the request with placeholders so that the page gets
+        // requested again if it's still needed
+        delete pageCallbacks[page];
+        delete latencyMarks[page];
+        const placeholders = [];
+        const count = Math.min(comboBox.pageSize, comboBox.size - page * comboBox.pageSize);
+        for (let i = 0; i < count; i++) {
+          placeholders.push(new Vaadin.ComboBoxPlaceholder());
+        }
+        callback(placeholders, comboBox.size);
+      }
     }
 
     const commitPage = function (page, callback) {
@@ -138,6 +519,37 @@ window.Vaadin.Flow.comboBoxConnector = {
         firstPage = data;
       }
       callback(data, comboBox.size);
+      recordLatency(page);
+    }
+
+    const recordLatency = function (page) {
+      const mark = latencyMarks[page];
+      if (!mark) {
+        return;
+      }
+      delete latencyMarks[page];
+      latencies.push({
+        type: mark.type,
+        filter: mark.filter,
+        page: parseInt(page),
+        duration: performance.now() - mark.start
+      });
+
+      // Report in batches to avoid a round trip for each measurement
+      if (latencies.length >= 20) {
+        reportLatencies();
+      } else if (!latencyReportTimeout) {
+        latencyReportTimeout = setTimeout(reportLatencies, 2000);
+      }
+    }
+
+    const reportLatencies = function () {
+      clearTimeout(latencyReportTimeout);
+      latencyReportTimeout = undefined;
+      if (latencies.length > 0) {
+        comboBox.$server.reportRenderLatencies(latencies);
+        latencies = [];
+      }
     }
   }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.internal.JsonCodec;
+import com.vaadin.flow.server.communication.rpc.PublishedServerEventHandlerRpcHandler;
+import com.vaadin.flow.shared.JsonConstants;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Calls the {@code @ClientCallable} methods of a component like a request
+ * from the client would, so that the methods can stay private.
+ *
+ * @author Vaadin Ltd
+ */
+final class ClientCallables {
+
+    private static final PublishedServerEventHandlerRpcHandler HANDLER = new PublishedServerEventHandlerRpcHandler();
+
+    private ClientCallables() {
+        // Only static methods
+    }
+
+    /**
+     * Calls a client callable method of a component.
+     *
+     * @param component
+     *            the component, not {@code null}
+     * @param method
+     *            the name of the method
+     * @param arguments
+     *            the arguments, as the client would send them, e.g. numbers,
+     *            strings, {@code null} or JSON values
+     */
+    static void call(Component component, String method,
+            Object... arguments) {
+        JsonArray json = Json.createArray();
+        for (int i = 0; i < arguments.length; i++) {
+            json.set(i, JsonCodec.encodeWithoutTypeInfo(arguments[i]));
+        }
+        JsonObject invocation = Json.createObject();
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_METHOD_NAME, method);
+        invocation.put(JsonConstants.RPC_TEMPLATE_EVENT_ARGS, json);
+        HANDLER.handleNode(component.getElement().getNode(), invocation)
+                .ifPresent(Runnable::run);
+    }
+}
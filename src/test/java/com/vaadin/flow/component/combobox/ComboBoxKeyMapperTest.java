@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ComboBoxKeyMapperTest {
+
+    private ComboBoxKeyMapper<String> keyMapper = new ComboBoxKeyMapper<>();
+
+    @Test
+    public void select_removeSelectedItem_keyIsKept() {
+        String key = keyMapper.key("foo");
+        keyMapper.select("foo");
+
+        keyMapper.remove("foo");
+
+        Assert.assertTrue(keyMapper.has("foo"));
+        Assert.assertEquals("foo", keyMapper.get(key));
+    }
+
+    @Test
+    public void select_removeOtherItem_keyIsRemoved() {
+        String key = keyMapper.key("bar");
+        keyMapper.select("foo");
+
+        keyMapper.remove("bar");
+
+        Assert.assertFalse(keyMapper.has("bar"));
+        Assert.assertNull(keyMapper.get(key));
+    }
+
+    @Test
+    public void selectNotActiveItem_selectAnother_keyIsReleased() {
+        String key = keyMapper.select("foo");
+        Assert.assertEquals("foo", keyMapper.get(key));
+
+        keyMapper.select("bar");
+
+        Assert.assertFalse(keyMapper.has("foo"));
+        Assert.assertTrue(keyMapper.has("bar"));
+    }
+
+    @Test
+    public void selectActiveItem_selectAnother_keyIsKept() {
+        keyMapper.activate("foo");
+        String key = keyMapper.key("foo");
+        keyMapper.select("foo");
+
+        keyMapper.select(null);
+
+        Assert.assertEquals("foo", keyMapper.get(key));
+    }
+
+    @Test
+    public void selectItem_itemRemovedAndDeselected_keyIsReleased() {
+        keyMapper.key("foo");
+        keyMapper.select("foo");
+        keyMapper.remove("foo");
+
+        keyMapper.select("bar");
+
+        Assert.assertFalse(keyMapper.has("foo"));
+    }
+
+    @Test
+    public void selectNotActiveItem_itemActivated_keyIsKeptAfterDeselect() {
+        keyMapper.select("foo");
+        keyMapper.activate("foo");
+        keyMapper.key("foo");
+
+        keyMapper.select(null);
+
+        Assert.assertTrue(keyMapper.has("foo"));
+    }
+
+    @Test
+    public void selectSameItemTwice_sameKey() {
+        String key = keyMapper.select("foo");
+        Assert.assertEquals(key, keyMapper.select("foo"));
+
+        keyMapper.select(null);
+        Assert.assertFalse(keyMapper.has("foo"));
+    }
+
+    @Test
+    public void itemIdProvider_keyIsItemId() {
+        keyMapper.setItemIdProvider(String::length);
+
+        Assert.assertEquals("3", keyMapper.key("foo"));
+        Assert.assertEquals("5", keyMapper.key("hello"));
+    }
+
+    @Test
+    public void itemIdProvider_onlyActivatedItemsAreStored() {
+        keyMapper.setItemIdProvider(String::length);
+
+        keyMapper.key("foo");
+        Assert.assertFalse(keyMapper.has("foo"));
+        Assert.assertNull(keyMapper.get("3"));
+
+        keyMapper.activate("foo");
+        Assert.assertTrue(keyMapper.has("foo"));
+        Assert.assertEquals("foo", keyMapper.get("3"));
+
+        keyMapper.remove("foo");
+        Assert.assertFalse(keyMapper.has("foo"));
+    }
+
+    @Test
+    public void itemIdProvider_selectedItemIsKept() {
+        keyMapper.setItemIdProvider(String::length);
+
+        Assert.assertEquals("3", keyMapper.select("foo"));
+        Assert.assertEquals("foo", keyMapper.get("3"));
+
+        keyMapper.select("hello");
+        Assert.assertNull(keyMapper.get("3"));
+        Assert.assertEquals("hello", keyMapper.get("5"));
+    }
+
+    @Test
+    public void itemIdProvider_refresh_itemIsReplaced() {
+        keyMapper.setItemIdProvider(String::length);
+        keyMapper.activate("foo");
+
+        keyMapper.refresh("bar");
+        Assert.assertEquals("bar", keyMapper.get("3"));
+
+        keyMapper.refresh("hello");
+        Assert.assertFalse(keyMapper.containsKey("5"));
+    }
+
+    @Test
+    public void removeAll_selectionIsCleared() {
+        keyMapper.select("foo");
+
+        keyMapper.removeAll();
+
+        Assert.assertFalse(keyMapper.has("foo"));
+        // Selecting again works as for a new item
+        keyMapper.select("bar");
+        Assert.assertTrue(keyMapper.has("bar"));
+    }
+}
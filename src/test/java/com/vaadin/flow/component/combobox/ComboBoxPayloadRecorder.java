@@ -0,0 +1,427 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.internal.UIInternals.JavaScriptInvocation;
+import com.vaadin.flow.internal.ConstantPool;
+import com.vaadin.flow.internal.JsonCodec;
+import com.vaadin.flow.server.VaadinSession;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+
+/**
+ * Drives a {@link ComboBox} inside a UI without a browser, acting like the
+ * connector would, and records the size of each response sent to the client.
+ * <p>
+ * The responses are encoded like the changes and JavaScript invocations of a
+ * real UIDL response, leaving out the parts which don't depend on the
+ * component, e.g. the dependencies and the sync ids.
+ *
+ * @author Vaadin Ltd
+ */
+class ComboBoxPayloadRecorder {
+
+    /**
+     * A response sent to the client.
+     */
+    static class Response {
+        private final int bytes;
+        private final List<String> functions;
+        private final int itemCount;
+        private final List<String> labels;
+
+        private Response(int bytes, List<String> functions, int itemCount,
+                List<String> labels) {
+            this.bytes = bytes;
+            this.functions = functions;
+            this.itemCount = itemCount;
+            this.labels = labels;
+        }
+
+        /**
+         * Gets the size of the serialized response in bytes.
+         *
+         * @return the size of the response
+         */
+        int getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Gets the number of functions called in the client.
+         *
+         * @return the number of function calls
+         */
+        int getFunctionCount() {
+            return functions.size();
+        }
+
+        /**
+         * Gets the number of times the given connector function is called in
+         * the client.
+         *
+         * @param name
+         *            the name of the function, e.g. {@code "set"}
+         * @return the number of calls
+         */
+        int getFunctionCount(String name) {
+            return (int) functions.stream()
+                    .filter(expression -> expression
+                            .contains("$connector." + name + "("))
+                    .count();
+        }
+
+        /**
+         * Gets the number of items sent to the client.
+         *
+         * @return the number of items
+         */
+        int getItemCount() {
+            return itemCount;
+        }
+
+        /**
+         * Gets the labels of the new items sent to the client, in the order
+         * of their indexes.
+         *
+         * @return the labels of the items
+         */
+        List<String> getLabels() {
+            return labels;
+        }
+
+        @Override
+        public String toString() {
+            return bytes + " bytes, " + itemCount + " items, " + functions;
+        }
+    }
+
+    private final ComboBox<?> comboBox;
+    private final UI ui = new UI();
+    private final ConstantPool constantPool = new ConstantPool();
+
+    private final List<Response> responses = new ArrayList<>();
+    private final List<JsonArray> serverCalls = new ArrayList<>();
+    private final Map<Integer, String> clientKeys = new HashMap<>();
+    private String filter = "";
+    private final List<Integer> pendingConfirmations = new ArrayList<>();
+    private int requestCount;
+    private boolean reset;
+    private int lastStart;
+    private int lastLength;
+    private boolean lastReset;
+
+    /**
+     * Attaches the given combo box to a new UI and records the initial
+     * response.
+     *
+     * @param comboBox
+     *            the combo box to drive
+     */
+    ComboBoxPayloadRecorder(ComboBox<?> comboBox) {
+        this.comboBox = comboBox;
+        ui.getInternals().setSession(new VaadinSession(null) {
+            @Override
+            public boolean hasLock() {
+                return true;
+            }
+        });
+        UI.setCurrent(ui);
+        ui.add(comboBox);
+        respond();
+    }
+
+    /**
+     * Opens the drop down, requesting the first page.
+     *
+     * @return the response
+     */
+    Response open() {
+        return scrollTo(0);
+    }
+
+    /**
+     * Scrolls the drop down to the given page, requesting the range the
+     * connector would request.
+     *
+     * @param page
+     *            the page to scroll to
+     * @return the response
+     */
+    Response scrollTo(int page) {
+        int pageSize = comboBox.getPageSize();
+        int retainedPageCount = comboBox.getRetainedPageCount();
+        if (retainedPageCount > 0) {
+            int startPage = Math.max(0, page - retainedPageCount);
+            int endPage = page + retainedPageCount;
+            sendRange(startPage * pageSize,
+                    (endPage - startPage + 1) * pageSize);
+        } else {
+            sendRange(0, pageSize * (page + 1));
+        }
+        return respond();
+    }
+
+    /**
+     * Requests the given range as it is, as a misbehaving client could.
+     *
+     * @param start
+     *            the start of the range
+     * @param length
+     *            the length of the range
+     * @return the response
+     */
+    Response requestRange(int start, int length) {
+        sendRange(start, length);
+        return respond();
+    }
+
+    /**
+     * Sends the deferred update confirmations, as the connector does when no
+     * items are requested within its timeout.
+     *
+     * @return the response
+     */
+    Response sendPendingConfirmations() {
+        if (!pendingConfirmations.isEmpty()) {
+            requestCount++;
+            callServer("confirmUpdates", takePendingConfirmations());
+        }
+        return respond();
+    }
+
+    /**
+     * Gets the number of requests sent to the server, including the update
+     * confirmations.
+     *
+     * @return the number of requests
+     */
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Sends the last request again, as the connector does when the server has
+     * throttled it.
+     *
+     * @return the response
+     */
+    Response retryThrottledRequest() {
+        reset = lastReset;
+        sendRange(lastStart, lastLength);
+        return respond();
+    }
+
+    private void sendRange(int start, int length) {
+        requestCount++;
+        lastStart = start;
+        lastLength = length;
+        lastReset = reset;
+        if (reset) {
+            reset = false;
+            callServer("resetRequestedRange", start, length, filter);
+        } else if (pendingConfirmations.isEmpty()) {
+            callServer("setRequestedRange", start, length, filter);
+        } else {
+            callServer("setRequestedRangeAndConfirmUpdates", start, length,
+                    filter, takePendingConfirmations());
+        }
+    }
+
+    private void callServer(String method, Object... arguments) {
+        JsonArray call = Json.createArray();
+        call.set(0, method);
+        for (Object argument : arguments) {
+            call.set(call.length(), JsonCodec.encodeWithoutTypeInfo(argument));
+        }
+        serverCalls.add(call);
+        ClientCallables.call(comboBox, method, arguments);
+    }
+
+    private JsonArray takePendingConfirmations() {
+        JsonArray ids = Json.createArray();
+        pendingConfirmations.forEach(id -> ids.set(ids.length(), id));
+        pendingConfirmations.clear();
+        return ids;
+    }
+
+    /**
+     * Types the given filter, requesting the first page.
+     *
+     * @param filter
+     *            the filter text
+     * @return the response
+     */
+    Response type(String filter) {
+        typeWithinDebounceTimeout(filter);
+        return open();
+    }
+
+    /**
+     * Types the given filter, which is changed again before the debounce
+     * timeout of the connector, so that nothing is requested for it.
+     *
+     * @param filter
+     *            the filter text
+     */
+    void typeWithinDebounceTimeout(String filter) {
+        if (!filter.equals(this.filter)) {
+            this.filter = filter;
+            // The connector clears its cache and has the whole range sent
+            // again with the next request
+            reset = true;
+            clientKeys.clear();
+        }
+    }
+
+    /**
+     * Selects the item at the given index among the items sent to the client.
+     *
+     * @param index
+     *            the index of the item
+     * @return the response
+     */
+    Response select(int index) {
+        String key = clientKeys.get(index);
+        if (key == null) {
+            throw new IllegalArgumentException(
+                    "No item has been sent for the index " + index);
+        }
+        comboBox.getElement().setProperty("value", key);
+        return respond();
+    }
+
+    /**
+     * Gets the key of the item the client holds at the given index.
+     *
+     * @param index
+     *            the index of the item
+     * @return the key of the item, or {@code null} if the client doesn't hold
+     *         an item at the index
+     */
+    String getClientKey(int index) {
+        return clientKeys.get(index);
+    }
+
+    /**
+     * Gets the calls made to the client callable methods of the combo box, in
+     * the order they were made. Each call is an array of the method name and
+     * the arguments.
+     *
+     * @return the calls to the server
+     */
+    List<JsonArray> getServerCalls() {
+        return serverCalls;
+    }
+
+    /**
+     * Gets all the recorded responses.
+     *
+     * @return the responses
+     */
+    List<Response> getResponses() {
+        return responses;
+    }
+
+    private Response respond() {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        JsonObject response = Json.createObject();
+        JsonArray changes = Json.createArray();
+        ui.getInternals().getStateTree().collectChanges(change -> changes
+                .set(changes.length(), change.toJson(constantPool)));
+        response.put("changes", changes);
+        if (constantPool.hasNewConstants()) {
+            response.put("constants", constantPool.dumpConstants());
+        }
+
+        List<JavaScriptInvocation> invocations = ui.getInternals()
+                .dumpPendingJavaScriptInvocations();
+        JsonArray execute = Json.createArray();
+        List<String> functions = new ArrayList<>();
+        List<Integer> updateIds = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        int itemCount = 0;
+        for (JavaScriptInvocation invocation : invocations) {
+            JsonArray encoded = Json.createArray();
+            for (Object parameter : invocation.getParameters()) {
+                encoded.set(encoded.length(),
+                        JsonCodec.encodeWithTypeInfo(parameter));
+            }
+            encoded.set(encoded.length(), invocation.getExpression());
+            execute.set(execute.length(), encoded);
+
+            functions.add(invocation.getExpression());
+            itemCount += receive(invocation, updateIds, labels);
+        }
+        response.put("execute", execute);
+
+        Response recorded = new Response(
+                response.toJson().getBytes(StandardCharsets.UTF_8).length,
+                functions, itemCount, labels);
+        responses.add(recorded);
+
+        // Confirmed in a request of their own or with the next request for
+        // items, like the connector does
+        if (comboBox.isDeferUpdateConfirmation()) {
+            pendingConfirmations.addAll(updateIds);
+        } else {
+            requestCount += updateIds.size();
+            updateIds.forEach(id -> callServer("confirmUpdate", id));
+        }
+        return recorded;
+    }
+
+    private int receive(JavaScriptInvocation invocation,
+            List<Integer> updateIds, List<String> labels) {
+        String expression = invocation.getExpression();
+        List<Object> parameters = invocation.getParameters();
+        if (expression.contains("$connector.set(")) {
+            int start = ((Number) parameters.get(1)).intValue();
+            JsonArray items = (JsonArray) parameters.get(2);
+            for (int i = 0; i < items.length(); i++) {
+                clientKeys.put(start + i,
+                        items.getObject(i).getString("key"));
+                labels.add(items.getObject(i).getString("label"));
+            }
+            return items.length();
+        }
+        if (expression.contains("$connector.clear(")) {
+            int start = ((Number) parameters.get(1)).intValue();
+            int length = ((Number) parameters.get(2)).intValue();
+            for (int i = start; i < start + length; i++) {
+                clientKeys.remove(i);
+            }
+            return 0;
+        }
+        if (expression.contains("$connector.updateData(")) {
+            return ((JsonArray) parameters.get(1)).length();
+        }
+        if (expression.contains("$connector.confirm(")) {
+            updateIds.add(((Number) parameters.get(1)).intValue());
+        }
+        return 0;
+    }
+}
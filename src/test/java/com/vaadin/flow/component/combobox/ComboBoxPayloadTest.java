@@ -0,0 +1,777 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.combobox.ComboBoxPayloadRecorder.Response;
+import com.vaadin.flow.dom.Element;
+import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.function.SerializablePredicate;
+
+public class ComboBoxPayloadTest {
+
+    // Long enough for any query which isn't slow to finish
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration SHORT_FETCH_TIMEOUT = Duration.ofMillis(50);
+
+    private ComboBox<String> comboBox;
+    // Released at the end of each test, so that slow queries finish
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        List<String> items = IntStream.range(0, 1000)
+                .mapToObj(i -> "Item " + i).collect(Collectors.toList());
+        comboBox = new ComboBox<>();
+        comboBox.setItems(items);
+    }
+
+    @After
+    public void tearDown() {
+        released.countDown();
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void open_firstPageSent() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+
+        Response response = recorder.open();
+
+        Assert.assertEquals(comboBox.getPageSize(), response.getItemCount());
+        Assert.assertEquals(3, response.getFunctionCount());
+        Assert.assertEquals(1, response.getFunctionCount("updateSize"));
+        Assert.assertEquals(1, response.getFunctionCount("set"));
+        Assert.assertEquals(1, response.getFunctionCount("confirm"));
+    }
+
+    @Test
+    public void scroll_onlyNewPagesSent() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        int firstPageBytes = recorder.open().getBytes();
+
+        for (int page = 1; page < 10; page++) {
+            Response response = recorder.scrollTo(page);
+            Assert.assertEquals(comboBox.getPageSize(),
+                    response.getItemCount());
+            Assert.assertEquals(1, response.getFunctionCount("set"));
+            assertSimilarSize(firstPageBytes, response);
+        }
+    }
+
+    @Test
+    public void scrollWithRetainedPages_onePageSentAndOneCleared() {
+        comboBox.setRetainedPageCount(1);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        int pageBytes = recorder.scrollTo(1).getBytes();
+
+        for (int page = 2; page < 10; page++) {
+            Response response = recorder.scrollTo(page);
+            Assert.assertEquals(comboBox.getPageSize(),
+                    response.getItemCount());
+            Assert.assertEquals(1, response.getFunctionCount("clear"));
+            Assert.assertEquals(1, response.getFunctionCount("set"));
+            assertSimilarSize(pageBytes, response);
+        }
+    }
+
+    @Test
+    public void scrollWithRetainedPages_keysOfScrolledPastItemsReleased() {
+        comboBox.setRetainedPageCount(1);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        String firstKey = recorder.getClientKey(0);
+
+        for (int page = 1; page < 10; page++) {
+            recorder.scrollTo(page);
+        }
+        Assert.assertNull(recorder.getClientKey(0));
+        String retainedKey = recorder.getClientKey(450);
+
+        comboBox.getElement().setProperty("value", firstKey);
+        Assert.assertNull(comboBox.getValue());
+        comboBox.getElement().setProperty("value", retainedKey);
+        Assert.assertEquals("Item 450", comboBox.getValue());
+    }
+
+    @Test
+    public void type_onlyMatchingItemsSent() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        int firstPageBytes = recorder.open().getBytes();
+
+        Response response = recorder.type("12");
+        // 12, 112, 120-129, 212, 312, ..., 912
+        Assert.assertEquals(20, response.getItemCount());
+        Assert.assertTrue(response.getBytes() < firstPageBytes);
+
+        response = recorder.type("123");
+        Assert.assertEquals(1, response.getItemCount());
+    }
+
+    @Test
+    public void type_extendedAndUnrelatedFilters_matchingItemsSent() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        Assert.assertEquals(50, recorder.type("1").getItemCount());
+        Assert.assertEquals(20, recorder.type("12").getItemCount());
+        Assert.assertEquals(1, recorder.type("123").getItemCount());
+        Assert.assertEquals(50, recorder.type("2").getItemCount());
+        Assert.assertEquals(20, recorder.type("23").getItemCount());
+        Assert.assertEquals(50, recorder.type("").getItemCount());
+    }
+
+    @Test
+    public void type_filterChangedBackWithinDebounceTimeout_itemsSentAgain() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        recorder.type("1");
+
+        recorder.typeWithinDebounceTimeout("12");
+        Response response = recorder.type("1");
+        Assert.assertEquals(50, response.getItemCount());
+        Assert.assertEquals(1, response.getFunctionCount("updateSize"));
+        Assert.assertEquals(1, response.getFunctionCount("confirm"));
+    }
+
+    @Test
+    public void clientSideFiltering_filteringSettingsSentToClient() {
+        comboBox.setItems("Crème brûlée", "Éclair", "Macaron");
+        comboBox.setAccentInsensitiveFiltering(true);
+        comboBox.setRankedFiltering(true);
+        comboBox.setMinimumFilterLength(2);
+        comboBox.setDeferUpdateConfirmation(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+
+        Assert.assertEquals(3, recorder.open().getItemCount());
+        Element element = comboBox.getElement();
+        Assert.assertTrue(element.getProperty("_clientSideFilter", false));
+        Assert.assertTrue(
+                element.getProperty("_accentInsensitiveFilter", false));
+        Assert.assertTrue(element.getProperty("_rankedFilter", false));
+        Assert.assertEquals(2, element.getProperty("_minimumFilterLength", 0));
+        Assert.assertTrue(
+                element.getProperty("_deferUpdateConfirmation", false));
+    }
+
+    @Test
+    public void incrementalFiltering_customFilter_onlyMatchesTested() {
+        AtomicInteger tests = new AtomicInteger();
+        comboBox = new ComboBox<>();
+        comboBox.setIncrementalFiltering(true);
+        comboBox.setItems((item, filterText) -> {
+            tests.incrementAndGet();
+            return item.contains(filterText);
+        }, IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        recorder.type("1");
+        Assert.assertEquals(1000, tests.getAndSet(0));
+
+        Assert.assertEquals(20, recorder.type("12").getItemCount());
+        // Only the 271 items containing "1" are tested
+        Assert.assertEquals(271, tests.get());
+    }
+
+    @Test
+    public void parallelFiltering_matchingItemsSent() {
+        comboBox = new ComboBox<>();
+        comboBox.setParallelFilteringThreshold(100);
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        Assert.assertEquals(50, recorder.type("1").getItemCount());
+        Assert.assertEquals(20, recorder.type("12").getItemCount());
+        Assert.assertEquals(50, recorder.type("item 2").getItemCount());
+    }
+
+    @Test
+    public void accentInsensitiveFiltering_accentsIgnored() {
+        comboBox = new ComboBox<>();
+        comboBox.setItems("Zürich", "Zurich", "Genève", "Bern");
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        Assert.assertEquals(1, recorder.type("zur").getItemCount());
+
+        // The items are sent again with the current filter
+        comboBox.setAccentInsensitiveFiltering(true);
+        Assert.assertEquals(2, recorder.open().getItemCount());
+        Assert.assertEquals(2, recorder.type("züri").getItemCount());
+        Assert.assertEquals(1, recorder.type("GENEVE").getItemCount());
+    }
+
+    @Test
+    public void rankedFiltering_prefixMatchesFirst() {
+        comboBox = new ComboBox<>();
+        comboBox.setRankedFiltering(true);
+        comboBox.setItems("New Bern", "Bernalillo", "Eberndorf", "Bern",
+                "Saint-Bernard");
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        Assert.assertEquals(Arrays.asList("Bernalillo", "Bern", "New Bern",
+                "Saint-Bernard", "Eberndorf"),
+                recorder.type("bern").getLabels());
+    }
+
+    @Test
+    public void rankedFiltering_onlyRequestedRangeSelected() {
+        comboBox = new ComboBox<>();
+        comboBox.setRankedFiltering(true);
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        List<String> labels = recorder.type("1").getLabels();
+        Assert.assertEquals(50, labels.size());
+        // Word prefix matches first: 1, 10-19 and then 100-138
+        Assert.assertEquals("Item 1", labels.get(0));
+        Assert.assertEquals("Item 10", labels.get(1));
+        Assert.assertEquals("Item 138", labels.get(49));
+    }
+
+    @Test
+    public void keysetPaging_deepScroll_fetchedAfterLastKey() {
+        List<String> fetches = new ArrayList<>();
+        ComboBox<Integer> keysetComboBox = new ComboBox<>();
+        keysetComboBox.setDataProvider(
+                (String filter, Integer lastKey, int limit) -> {
+                    fetches.add(lastKey + ":" + limit);
+                    int first = lastKey == null ? 0 : lastKey + 1;
+                    return IntStream.range(first, first + limit).boxed();
+                }, item -> item, filter -> 100000);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                keysetComboBox);
+        recorder.open();
+        for (int page = 1; page <= 3; page++) {
+            Assert.assertEquals(50, recorder.scrollTo(page).getItemCount());
+        }
+
+        Assert.assertEquals(
+                Arrays.asList("null:50", "49:50", "99:50", "149:50"),
+                fetches);
+    }
+
+    @Test
+    public void filteredRequests_oneSizeAndOneFetchPerRequest() {
+        AtomicInteger sizes = new AtomicInteger();
+        AtomicInteger fetches = new AtomicInteger();
+        ListDataProvider<String> dataProvider = new ListDataProvider<String>(
+                IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                        .collect(Collectors.toList())) {
+            @Override
+            public int size(Query<String, SerializablePredicate<String>> query) {
+                sizes.incrementAndGet();
+                return super.size(query);
+            }
+
+            @Override
+            public Stream<String> fetch(
+                    Query<String, SerializablePredicate<String>> query) {
+                fetches.incrementAndGet();
+                return super.fetch(query);
+            }
+        };
+        comboBox = new ComboBox<>();
+        comboBox.setDataProvider(
+                (item, filterText) -> item.contains(filterText),
+                dataProvider);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        sizes.set(0);
+        fetches.set(0);
+
+        Assert.assertEquals(50, recorder.type("1").getItemCount());
+        Assert.assertEquals(1, sizes.getAndSet(0));
+        Assert.assertEquals(1, fetches.getAndSet(0));
+
+        // Same filter, only the new page is fetched
+        Assert.assertEquals(50, recorder.scrollTo(1).getItemCount());
+        Assert.assertEquals(0, sizes.getAndSet(0));
+        Assert.assertEquals(1, fetches.getAndSet(0));
+
+        Assert.assertEquals(50, recorder.type("2").getItemCount());
+        Assert.assertEquals(1, sizes.getAndSet(0));
+        Assert.assertEquals(1, fetches.getAndSet(0));
+    }
+
+    @Test
+    public void deferUpdateConfirmation_halfTheRequests() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        int initialRequests = recorder.getRequestCount();
+        for (int page = 0; page < 5; page++) {
+            recorder.scrollTo(page);
+        }
+        Assert.assertEquals(10, recorder.getRequestCount() - initialRequests);
+
+        comboBox = new ComboBox<>();
+        comboBox.setDeferUpdateConfirmation(true);
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        recorder = new ComboBoxPayloadRecorder(comboBox);
+        for (int page = 0; page < 5; page++) {
+            Assert.assertEquals(50, recorder.scrollTo(page).getItemCount());
+        }
+        Assert.assertEquals(5, recorder.getRequestCount());
+
+        // The last confirmation is sent on its own after the timeout
+        Assert.assertEquals(0,
+                recorder.sendPendingConfirmations().getItemCount());
+        Assert.assertEquals(6, recorder.getRequestCount());
+    }
+
+    @Test
+    public void clearFilter_itemsSentInOneRoundTrip() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        recorder.type("1");
+        int requests = recorder.getRequestCount();
+
+        Assert.assertEquals(50, recorder.type("").getItemCount());
+        // The range request and the confirmation of the update
+        Assert.assertEquals(2, recorder.getRequestCount() - requests);
+    }
+
+    @Test
+    public void clearFilter_unchangedOnServer_itemsSentAgain() {
+        // The filter was changed and cleared within the debounce timeout
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        int requests = recorder.getRequestCount();
+
+        recorder.typeWithinDebounceTimeout("1");
+        Assert.assertEquals(50, recorder.type("").getItemCount());
+        Assert.assertEquals(2, recorder.getRequestCount() - requests);
+    }
+
+    @Test
+    public void minimumFilterLength_shortFilter_noQueries() {
+        List<String> queries = new ArrayList<>();
+        comboBox = new ComboBox<>();
+        comboBox.setMinimumFilterLength(2);
+        comboBox.setDataProvider((filter, offset, limit) -> {
+            queries.add("fetch:" + filter);
+            return IntStream.range(offset, offset + limit)
+                    .mapToObj(i -> filter + i);
+        }, filter -> {
+            queries.add("size:" + filter);
+            return 1000;
+        });
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        queries.clear();
+
+        Assert.assertEquals(0, recorder.type("a").getItemCount());
+        Assert.assertEquals(0, queries.size());
+
+        Assert.assertEquals(50, recorder.type("ab").getItemCount());
+        Assert.assertEquals(Arrays.asList("size:ab", "fetch:ab"), queries);
+        queries.clear();
+
+        Assert.assertEquals(50, recorder.type("").getItemCount());
+        Assert.assertEquals(Arrays.asList("size:", "fetch:"), queries);
+    }
+
+    @Test
+    public void maximumRequestedRangeLength_endOfRangeSent() {
+        comboBox.setMaximumRequestedRangeLength(100);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        // Requests the items from 0 to 200, of which 100 to 200 are sent
+        List<String> labels = recorder.scrollTo(3).getLabels();
+        Assert.assertEquals(100, labels.size());
+        Assert.assertEquals("Item 100", labels.get(0));
+    }
+
+    @Test
+    public void rangeEndingPastLargestInt_noItemsSent() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        Assert.assertEquals(0, recorder
+                .requestRange(Integer.MAX_VALUE, 100).getItemCount());
+        comboBox.setMaximumRequestedRangeLength(100);
+        Assert.assertEquals(0, recorder
+                .requestRange(Integer.MAX_VALUE - 50, 200).getItemCount());
+        Assert.assertEquals(50, recorder.open().getItemCount());
+    }
+
+    @Test
+    public void maximumRequestedRangeLength_droppedItemsClearedInClient() {
+        comboBox.setMaximumRequestedRangeLength(100);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        recorder.scrollTo(3);
+
+        Response response = recorder.scrollTo(4);
+        Assert.assertEquals(1, response.getFunctionCount("clear"));
+        Assert.assertNull(recorder.getClientKey(5));
+        Assert.assertNull(recorder.getClientKey(100));
+        recorder.select(150);
+        Assert.assertEquals("Item 150", comboBox.getValue());
+    }
+
+    @Test
+    public void requestRateLimit_requestsOverLimitIgnored() {
+        comboBox.setRequestRateLimit(3);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+
+        Assert.assertEquals(50, recorder.scrollTo(0).getItemCount());
+        Assert.assertEquals(50, recorder.scrollTo(1).getItemCount());
+        Assert.assertEquals(50, recorder.scrollTo(2).getItemCount());
+        Response response = recorder.scrollTo(3);
+        Assert.assertEquals(0, response.getItemCount());
+        Assert.assertEquals(1, response.getFunctionCount("throttled"));
+    }
+
+    @Test
+    public void requestRateLimit_throttledRequestRetried() {
+        AtomicLong nanos = new AtomicLong();
+        comboBox = new ComboBox<String>() {
+            @Override
+            TokenBucket createRequestRateLimiter(int requestsPerSecond) {
+                return new TokenBucket(requestsPerSecond) {
+                    @Override
+                    long nanoTime() {
+                        return nanos.get();
+                    }
+                };
+            }
+        };
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        comboBox.setRequestRateLimit(10);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        for (int page = 0; page < 10; page++) {
+            recorder.scrollTo(page);
+        }
+        Assert.assertEquals(0, recorder.scrollTo(10).getItemCount());
+
+        // The client retries after the delay it's given, 100 ms
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        Assert.assertEquals(50,
+                recorder.retryThrottledRequest().getItemCount());
+    }
+
+    @Test
+    public void fetchTimeout_cachedItemsSentWhenBackendSlow() {
+        AtomicBoolean slow = new AtomicBoolean();
+        comboBox.setDataProvider((filter, offset, limit) -> {
+            awaitReleaseIf(slow.get());
+            return IntStream.range(offset, offset + limit)
+                    .mapToObj(i -> "Item " + i);
+        }, filter -> {
+            awaitReleaseIf(slow.get());
+            return 1000;
+        });
+        comboBox.setFetchTimeout(FETCH_TIMEOUT);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        slow.set(true);
+        comboBox.setFetchTimeout(SHORT_FETCH_TIMEOUT);
+        comboBox.getDataProvider().refreshAll();
+        List<String> labels = recorder.scrollTo(0).getLabels();
+        Assert.assertEquals(50, labels.size());
+        Assert.assertEquals("Item 0", labels.get(0));
+    }
+
+    @Test
+    public void fetchTimeout_keysetPaging_timedOutPageNotRemembered() {
+        List<String> fetches = new CopyOnWriteArrayList<>();
+        AtomicBoolean slow = new AtomicBoolean();
+        ComboBox<Integer> keysetComboBox = new ComboBox<>();
+        keysetComboBox.setDataProvider(
+                (String filter, Integer lastKey, int limit) -> {
+                    fetches.add(lastKey + ":" + limit);
+                    if (slow.getAndSet(false)) {
+                        // Keeps running after the query has timed out
+                        awaitReleaseUninterruptibly();
+                    }
+                    int first = lastKey == null ? 0 : lastKey + 1;
+                    return IntStream.range(first, first + limit).boxed();
+                }, item -> item, filter -> 100000);
+        keysetComboBox.setFetchTimeout(FETCH_TIMEOUT);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                keysetComboBox);
+        recorder.open();
+
+        slow.set(true);
+        keysetComboBox.setFetchTimeout(SHORT_FETCH_TIMEOUT);
+        keysetComboBox.getDataProvider().refreshAll();
+        Assert.assertEquals(50, recorder.open().getItemCount());
+
+        released.countDown();
+        keysetComboBox.setFetchTimeout(FETCH_TIMEOUT);
+        Assert.assertEquals(50, recorder.scrollTo(1).getItemCount());
+
+        // The boundaries passed by the query which timed out are never
+        // remembered, even if it finished before the next query
+        Assert.assertEquals(Arrays.asList("null:50", "null:50", "null:100"),
+                fetches);
+    }
+
+    private void awaitReleaseUninterruptibly() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                released.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitReleaseIf(boolean slow) {
+        if (slow) {
+            try {
+                // Interrupted when the query times out
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Test
+    public void sharedItemDataCache_labelsGeneratedOnceForAllComboBoxes() {
+        SharedItemDataCache<String> cache = new SharedItemDataCache<>();
+        AtomicInteger labels = new AtomicInteger();
+        List<Response> responses = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ComboBox<String> sharing = new ComboBox<>();
+            sharing.setItems(IntStream.range(0, 1000)
+                    .mapToObj(item -> "Item " + item));
+            sharing.setItemLabelGenerator(item -> {
+                labels.incrementAndGet();
+                return item.toUpperCase();
+            });
+            sharing.setSharedItemDataCache(cache);
+            responses.add(new ComboBoxPayloadRecorder(sharing).open());
+        }
+
+        // Once more for checking the cached data of the second combo box
+        Assert.assertEquals(51, labels.get());
+        Assert.assertEquals(responses.get(0).getLabels(),
+                responses.get(1).getLabels());
+        Assert.assertEquals("ITEM 0", responses.get(1).getLabels().get(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sharedItemDataCache_differentLabels_throws() {
+        SharedItemDataCache<String> cache = new SharedItemDataCache<>();
+        comboBox.setSharedItemDataCache(cache);
+        new ComboBoxPayloadRecorder(comboBox).open();
+
+        ComboBox<String> other = new ComboBox<>();
+        other.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i));
+        other.setItemLabelGenerator(String::toUpperCase);
+        other.setSharedItemDataCache(cache);
+        new ComboBoxPayloadRecorder(other).open();
+    }
+
+    @Test
+    public void itemsLoadedAsResource_sameUrlForSameItems_noItemsSent() {
+        comboBox.setItemIdProvider(item -> item);
+        comboBox.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        String url = comboBox.getElement().getAttribute("items-url");
+
+        Assert.assertTrue(url,
+                url.startsWith("VAADIN/dynamic/combobox-items/"));
+        Assert.assertEquals(0, recorder.open().getItemCount());
+
+        ComboBox<String> other = new ComboBox<>();
+        other.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i));
+        other.setItemIdProvider(item -> item);
+        other.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder otherRecorder = new ComboBoxPayloadRecorder(
+                other);
+        Assert.assertEquals(url, other.getElement().getAttribute("items-url"));
+
+        other.setItems("Item 0");
+        otherRecorder.open();
+        Assert.assertNotEquals(url,
+                other.getElement().getAttribute("items-url"));
+    }
+
+    @Test
+    public void itemsPersistedInBrowser_versionOfResourceSent() {
+        comboBox.setItemIdProvider(item -> item);
+        comboBox.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        Assert.assertFalse(comboBox.getElement().hasAttribute("items-version"));
+
+        comboBox.setItemsPersistedInBrowser(true);
+        recorder.open();
+        String version = comboBox.getElement().getAttribute("items-version");
+        Assert.assertTrue(comboBox.getElement().getAttribute("items-url")
+                .endsWith("/" + version + ".json"));
+
+        comboBox.setItemsLoadedAsResource(false);
+        recorder.open();
+        Assert.assertFalse(comboBox.getElement().hasAttribute("items-version"));
+        Assert.assertFalse(comboBox.getElement().hasAttribute("items-url"));
+    }
+
+    @Test
+    public void itemsLoadedAsResource_sameItemsInUi_servedUntilAllDetached() {
+        comboBox.setItemIdProvider(item -> item);
+        comboBox.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        UI ui = comboBox.getUI().get();
+        ComboBox<String> other = new ComboBox<>();
+        other.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i));
+        other.setItemIdProvider(item -> item);
+        other.setItemsLoadedAsResource(true);
+        ui.add(other);
+        recorder.open();
+        String url = other.getElement().getAttribute("items-url");
+        Assert.assertEquals(comboBox.getElement().getAttribute("items-url"),
+                url);
+        ItemsResource resource = ItemsResource.get(ui.getSession());
+        String version = url.substring(url.lastIndexOf('/') + 1,
+                url.length() - ".json".length());
+
+        ui.remove(other);
+        Assert.assertTrue(resource.isUsed(version));
+        ui.remove(comboBox);
+        Assert.assertFalse(resource.isUsed(version));
+    }
+
+    @Test
+    public void itemsVersion_itemsGeneratedOnceForAllSessions() {
+        AtomicInteger labels = new AtomicInteger();
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            ComboBox<String> versioned = new ComboBox<>();
+            versioned.setItems(IntStream.range(0, 1000)
+                    .mapToObj(item -> "Item " + item));
+            versioned.setItemIdProvider(item -> item);
+            versioned.setItemLabelGenerator(item -> {
+                labels.incrementAndGet();
+                return item;
+            });
+            versioned.setItemsLoadedAsResource(true);
+            versioned.setItemsVersion("items-1");
+            new ComboBoxPayloadRecorder(versioned).open();
+            urls.add(versioned.getElement().getAttribute("items-url"));
+        }
+
+        Assert.assertEquals(1000, labels.get());
+        Assert.assertEquals(urls.get(0), urls.get(1));
+    }
+
+    @Test
+    public void itemsLoadedAsResource_selectedItemResolved() {
+        comboBox.setItemIdProvider(item -> item);
+        comboBox.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        comboBox.getElement().setProperty("value", "Item 500");
+
+        Assert.assertEquals("Item 500", comboBox.getValue());
+    }
+
+    @Test
+    public void itemsLoadedAsResource_withoutItemIds_itemsSent() {
+        comboBox.setItemsLoadedAsResource(true);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+
+        Assert.assertFalse(comboBox.getElement().hasAttribute("items-url"));
+        Assert.assertEquals(50, recorder.open().getItemCount());
+    }
+
+    @Test
+    public void select_noFunctionCalls() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+
+        Response response = recorder.select(5);
+
+        Assert.assertEquals("Item 5", comboBox.getValue());
+        Assert.assertEquals(0, response.getFunctionCount());
+        Assert.assertEquals(0, response.getItemCount());
+    }
+
+    private static void assertSimilarSize(int expectedBytes,
+            Response response) {
+        Assert.assertTrue("Unexpected response size: " + response,
+                Math.abs(response.getBytes() - expectedBytes) < expectedBytes
+                        / 10);
+    }
+}
@@ -17,10 +17,13 @@ package com.vaadin.flow.component.combobox;
 
 import static org.junit.Assert.assertEquals;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Rule;
@@ -28,12 +31,18 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import com.vaadin.flow.component.Focusable;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.data.binder.Binder;
 import com.vaadin.flow.data.provider.DataProvider;
 import com.vaadin.flow.data.provider.ListDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.renderer.TemplateRenderer;
+import com.vaadin.flow.server.VaadinSession;
 import com.vaadin.flow.shared.Registration;
 
 import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
 
 public class ComboBoxTest {
 
@@ -256,6 +265,277 @@ public class ComboBoxTest {
         comboBox.setPageSize(0);
     }
 
+    @Test
+    public void getRetainedPageCount_defaultNoLimit() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(-1, comboBox.getRetainedPageCount());
+    }
+
+    @Test
+    public void setRetainedPageCount_getRetainedPageCount() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        comboBox.setRetainedPageCount(2);
+        Assert.assertEquals(2, comboBox.getRetainedPageCount());
+        comboBox.setRetainedPageCount(-5);
+        Assert.assertEquals(-1, comboBox.getRetainedPageCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRetainedPageCountZero_throws() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        comboBox.setRetainedPageCount(0);
+    }
+
+    @Test
+    public void setComponentCacheSize_getComponentCacheSize() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(0, comboBox.getComponentCacheSize());
+        comboBox.setComponentCacheSize(100);
+        Assert.assertEquals(100, comboBox.getComponentCacheSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setComponentCacheSizeNegative_throws() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        comboBox.setComponentCacheSize(-1);
+    }
+
+    @Test
+    public void isIncrementalFiltering_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isIncrementalFiltering());
+        comboBox.setIncrementalFiltering(true);
+        Assert.assertTrue(comboBox.isIncrementalFiltering());
+    }
+
+    @Test
+    public void getParallelFilteringThreshold_defaultZero() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(0, comboBox.getParallelFilteringThreshold());
+        comboBox.setParallelFilteringThreshold(100000);
+        Assert.assertEquals(100000, comboBox.getParallelFilteringThreshold());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeParallelFilteringThreshold_throws() {
+        new ComboBox<String>().setParallelFilteringThreshold(-1);
+    }
+
+    @Test
+    public void isAccentInsensitiveFiltering_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isAccentInsensitiveFiltering());
+        comboBox.setAccentInsensitiveFiltering(true);
+        Assert.assertTrue(comboBox.isAccentInsensitiveFiltering());
+        Assert.assertTrue(comboBox.getElement()
+                .getProperty("_accentInsensitiveFilter", false));
+    }
+
+    @Test
+    public void isRankedFiltering_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isRankedFiltering());
+        comboBox.setRankedFiltering(true);
+        Assert.assertTrue(comboBox.isRankedFiltering());
+        Assert.assertTrue(
+                comboBox.getElement().getProperty("_rankedFilter", false));
+    }
+
+    @Test
+    public void isDeferUpdateConfirmation_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isDeferUpdateConfirmation());
+        comboBox.setDeferUpdateConfirmation(true);
+        Assert.assertTrue(comboBox.isDeferUpdateConfirmation());
+    }
+
+    @Test
+    public void getMinimumFilterLength_defaultZero() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(0, comboBox.getMinimumFilterLength());
+        comboBox.setMinimumFilterLength(3);
+        Assert.assertEquals(3, comboBox.getMinimumFilterLength());
+        Assert.assertEquals(3, comboBox.getElement()
+                .getProperty("_minimumFilterLength", 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeMinimumFilterLength_throws() {
+        new ComboBox<String>().setMinimumFilterLength(-1);
+    }
+
+    @Test
+    public void getMaximumRequestedRangeLength_defaultZero() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(0, comboBox.getMaximumRequestedRangeLength());
+        comboBox.setMaximumRequestedRangeLength(500);
+        Assert.assertEquals(500, comboBox.getMaximumRequestedRangeLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeMaximumRequestedRangeLength_throws() {
+        new ComboBox<String>().setMaximumRequestedRangeLength(-1);
+    }
+
+    @Test
+    public void getRequestRateLimit_defaultZero() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertEquals(0, comboBox.getRequestRateLimit());
+        comboBox.setRequestRateLimit(10);
+        Assert.assertEquals(10, comboBox.getRequestRateLimit());
+        comboBox.setRequestRateLimit(0);
+        Assert.assertEquals(0, comboBox.getRequestRateLimit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeRequestRateLimit_throws() {
+        new ComboBox<String>().setRequestRateLimit(-1);
+    }
+
+    @Test
+    public void getFetchTimeout_defaultNull() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertNull(comboBox.getFetchTimeout());
+        comboBox.setFetchTimeout(Duration.ofSeconds(2));
+        Assert.assertEquals(Duration.ofSeconds(2), comboBox.getFetchTimeout());
+        comboBox.setFetchTimeout(Duration.ofMillis(500));
+        Assert.assertEquals(Duration.ofMillis(500),
+                comboBox.getFetchTimeout());
+        comboBox.setFetchTimeout(null);
+        Assert.assertNull(comboBox.getFetchTimeout());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setNegativeFetchTimeout_throws() {
+        new ComboBox<String>().setFetchTimeout(Duration.ofSeconds(-1));
+    }
+
+    @Test
+    public void isItemsLoadedAsResource_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isItemsLoadedAsResource());
+        comboBox.setItemsLoadedAsResource(true);
+        Assert.assertTrue(comboBox.isItemsLoadedAsResource());
+    }
+
+    @Test
+    public void isItemsPersistedInBrowser_defaultFalse() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertFalse(comboBox.isItemsPersistedInBrowser());
+        comboBox.setItemsPersistedInBrowser(true);
+        Assert.assertTrue(comboBox.isItemsPersistedInBrowser());
+    }
+
+    @Test
+    public void getMetrics_defaultNone() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Assert.assertSame(ComboBoxMetrics.NONE, comboBox.getMetrics());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void setMetricsNull_throws() {
+        new ComboBox<String>().setMetrics(null);
+    }
+
+    @Test
+    public void addRenderLatencyListener_reportingEnabledWhileListening() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        Registration first = comboBox.addRenderLatencyListener(event -> {
+        });
+        Registration second = comboBox.addRenderLatencyListener(event -> {
+        });
+        Assert.assertTrue(comboBox.getElement()
+                .getProperty("_reportRenderLatency", false));
+
+        first.remove();
+        Assert.assertTrue(comboBox.getElement()
+                .getProperty("_reportRenderLatency", false));
+
+        second.remove();
+        Assert.assertFalse(comboBox.getElement()
+                .getProperty("_reportRenderLatency", false));
+    }
+
+    @Test
+    public void reportRenderLatencies_eventsFired() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        List<RenderLatencyEvent<String>> events = new ArrayList<>();
+        comboBox.addRenderLatencyListener(events::add);
+
+        JsonObject filter = Json.createObject();
+        filter.put("type", "filter");
+        filter.put("filter", "fin");
+        filter.put("page", 0);
+        filter.put("duration", 120.5);
+        JsonObject scroll = Json.createObject();
+        scroll.put("type", "scroll");
+        scroll.put("filter", "");
+        scroll.put("page", 3);
+        scroll.put("duration", 80);
+        JsonArray latencies = Json.createArray();
+        latencies.set(0, filter);
+        latencies.set(1, scroll);
+        ClientCallables.call(comboBox, "reportRenderLatencies", latencies);
+
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(RenderLatencyEvent.Type.FILTER,
+                events.get(0).getType());
+        Assert.assertEquals("fin", events.get(0).getFilter());
+        Assert.assertEquals(120.5, events.get(0).getDuration(), 0);
+        Assert.assertTrue(events.get(0).isFromClient());
+        Assert.assertEquals(RenderLatencyEvent.Type.SCROLL,
+                events.get(1).getType());
+        Assert.assertEquals(3, events.get(1).getPage());
+    }
+
+    @Test
+    public void reportRenderLatencies_malformedReportsIgnored() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        List<RenderLatencyEvent<String>> events = new ArrayList<>();
+        comboBox.addRenderLatencyListener(events::add);
+
+        JsonObject unknownType = Json.createObject();
+        unknownType.put("type", "unknown");
+        unknownType.put("filter", "");
+        unknownType.put("page", 0);
+        unknownType.put("duration", 10);
+        JsonObject missingPage = Json.createObject();
+        missingPage.put("type", "scroll");
+        missingPage.put("filter", "");
+        missingPage.put("duration", 10);
+        JsonObject stringDuration = Json.createObject();
+        stringDuration.put("type", "filter");
+        stringDuration.put("filter", "a");
+        stringDuration.put("page", 0);
+        stringDuration.put("duration", "10");
+        JsonObject valid = Json.createObject();
+        valid.put("type", "scroll");
+        valid.put("filter", "");
+        valid.put("page", 2);
+        valid.put("duration", 10);
+        JsonArray latencies = Json.createArray();
+        latencies.set(0, unknownType);
+        latencies.set(1, "filter");
+        latencies.set(2, missingPage);
+        latencies.set(3, stringDuration);
+        latencies.set(4, valid);
+        ClientCallables.call(comboBox, "reportRenderLatencies", latencies);
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(2, events.get(0).getPage());
+    }
+
+    @Test
+    public void setValue_selectedItemHasKeyAndLabel() {
+        ComboBox<String> comboBox = new ComboBox<>("label", "foo", "bar");
+        comboBox.setItemLabelGenerator(String::toUpperCase);
+        comboBox.setValue("bar");
+
+        JsonObject selectedItem = comboBox.getSelectedItemJsonObject();
+        Assert.assertEquals("BAR", selectedItem.getString("label"));
+        Assert.assertTrue(selectedItem.hasKey("key"));
+    }
+
     @Test
     public void setValueNull_selectedItemNull() {
         ComboBox<String> comboBox = new ComboBox<>("1", "2");
@@ -267,6 +547,85 @@ public class ComboBoxTest {
                 comboBox.getSelectedItemJsonObject());
     }
 
+    @Test
+    public void setItemIdProvider_selectedItemKeyIsItemId() {
+        ComboBox<String> comboBox = new ComboBox<>("label", "foo", "hello");
+        comboBox.setItemIdProvider(String::length);
+        comboBox.setValue("hello");
+
+        Assert.assertEquals("5",
+                comboBox.getSelectedItemJsonObject().getString("key"));
+        Assert.assertEquals("5", comboBox.getElement().getProperty("value"));
+    }
+
+    @Test
+    public void setValue_setItemIdProvider_selectionKeyIsUpdated() {
+        ComboBox<String> comboBox = new ComboBox<>("label", "foo", "hello");
+        comboBox.setValue("hello");
+
+        comboBox.setItemIdProvider(String::length);
+
+        Assert.assertEquals("hello", comboBox.getValue());
+        Assert.assertEquals("5",
+                comboBox.getSelectedItemJsonObject().getString("key"));
+        Assert.assertEquals("5", comboBox.getElement().getProperty("value"));
+    }
+
+    @Test
+    public void setItemResolver_unknownKeyFromClient_itemIsResolved() {
+        ComboBox<String> comboBox = new ComboBox<>("label", "foo", "hello");
+        comboBox.setItemIdProvider(String::length);
+        comboBox.setItemResolver(id -> "x".equals(id) ? null : "resolved" + id);
+
+        comboBox.getElement().setProperty("value", "7");
+        Assert.assertEquals("resolved7", comboBox.getValue());
+
+        comboBox.getElement().setProperty("value", "x");
+        Assert.assertNull(comboBox.getValue());
+    }
+
+    @Test
+    public void setItemResolver_generatedKeys_resolverNotUsed() {
+        ComboBox<String> comboBox = new ComboBox<>("label", "foo", "hello");
+        comboBox.setItemResolver(id -> "resolved" + id);
+
+        comboBox.getElement().setProperty("value", "7");
+        Assert.assertNull(comboBox.getValue());
+    }
+
+    @Test
+    public void setTemplateRenderer_itemsRendered_noComponentsCreated() {
+        ComboBox<String> comboBox = new ComboBox<>();
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(String::valueOf)
+                .collect(Collectors.toList()));
+        comboBox.setRenderer(TemplateRenderer.<String> of(
+                "<iron-icon icon='[[item.icon]]'></iron-icon>[[item.name]]")
+                .withProperty("icon", item -> "vaadin:user")
+                .withProperty("name", item -> item));
+
+        UI ui = new UI();
+        ui.getInternals().setSession(new VaadinSession(null) {
+            @Override
+            public boolean hasLock() {
+                return true;
+            }
+        });
+        ui.add(comboBox);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+
+        List<String> items = comboBox.getDataProvider().fetch(new Query<>())
+                .collect(Collectors.toList());
+        items.forEach(item -> comboBox.getDataGenerator().generateData(item,
+                Json.createObject()));
+
+        // Only the template element
+        Assert.assertEquals(1, comboBox.getElement().getChildCount());
+        Assert.assertEquals(0, comboBox.getChildren().count());
+        JsonObject json = Json.createObject();
+        comboBox.getDataGenerator().generateData("42", json);
+        Assert.assertTrue(json.toJson().contains("vaadin:user"));
+    }
+
     private void assertItem(TestComboBox comboBox, int index, String caption) {
         String value1 = comboBox.items.get(index);
         Assert.assertEquals(caption, value1);
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.combobox.ComboBoxPayloadRecorder.Response;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Checks that {@link ComboBoxPayloadRecorder} calls the server like the
+ * connector does, by running the scenarios of connector-protocol.json. The
+ * same scenarios are run against the connector by
+ * src/test/js/connector-protocol-test.js.
+ */
+public class ConnectorProtocolTest {
+
+    @After
+    public void tearDown() {
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void recorder_callsServerLikeConnector()
+            throws IOException, URISyntaxException {
+        JsonArray scenarios = Json
+                .parse(new String(
+                        Files.readAllBytes(Paths.get(getClass()
+                                .getResource("/connector-protocol.json")
+                                .toURI())),
+                        StandardCharsets.UTF_8))
+                .getArray("scenarios");
+        for (int i = 0; i < scenarios.length(); i++) {
+            run(scenarios.getObject(i));
+        }
+    }
+
+    private void run(JsonObject scenario) {
+        String name = scenario.getString("name");
+        AtomicLong nanos = new AtomicLong();
+        ComboBox<String> comboBox = new ComboBox<String>() {
+            @Override
+            TokenBucket createRequestRateLimiter(int requestsPerSecond) {
+                return new TokenBucket(requestsPerSecond) {
+                    @Override
+                    long nanoTime() {
+                        return nanos.get();
+                    }
+                };
+            }
+        };
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+        if (scenario.hasKey("deferUpdateConfirmation")) {
+            comboBox.setDeferUpdateConfirmation(
+                    scenario.getBoolean("deferUpdateConfirmation"));
+        }
+        if (scenario.hasKey("requestRateLimit")) {
+            comboBox.setRequestRateLimit(
+                    (int) scenario.getNumber("requestRateLimit"));
+        }
+
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        JsonArray steps = scenario.getArray("steps");
+        for (int i = 0; i < steps.length(); i++) {
+            JsonObject step = steps.getObject(i);
+            String action = step.getString("action");
+            Response response;
+            switch (action) {
+            case "open":
+                response = recorder.open();
+                break;
+            case "scrollTo":
+                response = recorder
+                        .scrollTo((int) step.getNumber("argument"));
+                break;
+            case "type":
+                response = recorder.type(step.getString("argument"));
+                break;
+            case "typeWithinDebounceTimeout":
+                recorder.typeWithinDebounceTimeout(step.getString("argument"));
+                response = null;
+                break;
+            case "retryThrottledRequest":
+                // The client waits for the delay it was given
+                nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos((long) Math
+                        .ceil(1000d / comboBox.getRequestRateLimit())));
+                response = recorder.retryThrottledRequest();
+                break;
+            case "sendPendingConfirmations":
+                response = recorder.sendPendingConfirmations();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown action " + action);
+            }
+            boolean throttled = step.hasKey("throttled")
+                    && step.getBoolean("throttled");
+            Assert.assertEquals(name + ", step " + i, throttled,
+                    response != null
+                            && response.getFunctionCount("throttled") > 0);
+        }
+
+        Assert.assertEquals(name, scenario.getArray("calls").toJson(),
+                normalize(recorder.getServerCalls()).toJson());
+    }
+
+    // The ids of the confirmed updates are replaced by their count
+    private static JsonArray normalize(List<JsonArray> calls) {
+        JsonArray normalized = Json.createArray();
+        for (JsonArray call : calls) {
+            JsonArray copy = Json.createArray();
+            for (int i = 0; i < call.length(); i++) {
+                copy.set(i, (JsonValue) call.get(i));
+            }
+            switch (copy.getString(0)) {
+            case "confirmUpdate":
+                copy.remove(1);
+                break;
+            case "confirmUpdates":
+            case "setRequestedRangeAndConfirmUpdates":
+                int last = copy.length() - 1;
+                copy.set(last, copy.getArray(last).length());
+                break;
+            default:
+                break;
+            }
+            normalized.set(normalized.length(), copy);
+        }
+        return normalized;
+    }
+}
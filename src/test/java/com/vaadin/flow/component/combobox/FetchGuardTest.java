@@ -0,0 +1,213 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.combobox.CircuitBreakerEvent.State;
+
+public class FetchGuardTest {
+
+    // Long enough for any query which isn't hanging to finish, including the
+    // start of the thread running it
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration SHORT_TIMEOUT = Duration.ofMillis(50);
+
+    private static class TestGuard extends FetchGuard<String> {
+        private long millis;
+
+        private TestGuard(List<State> states, Duration timeout) {
+            super(timeout, states::add);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return millis;
+        }
+    }
+
+    private final List<State> states = new ArrayList<>();
+    private final TestGuard guard = new TestGuard(states, TIMEOUT);
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @After
+    public void releaseQueries() {
+        released.countDown();
+        UI.setCurrent(null);
+    }
+
+    private <V> Supplier<V> hanging() {
+        return () -> {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+    }
+
+    private <V> V timingOut(Supplier<V> call) {
+        guard.setTimeout(SHORT_TIMEOUT);
+        try {
+            return call.get();
+        } finally {
+            guard.setTimeout(TIMEOUT);
+        }
+    }
+
+    private static <V> Supplier<V> failing() {
+        return () -> {
+            throw new IllegalStateException("Backend down");
+        };
+    }
+
+    @Test
+    public void successfulQuery_resultReturned() {
+        Assert.assertEquals(Arrays.asList("a", "b"),
+                guard.fetch("", 0, 2, () -> Arrays.asList("a", "b")));
+        Assert.assertEquals(42, guard.size("", () -> 42));
+        Assert.assertEquals(State.CLOSED, guard.getState());
+        Assert.assertTrue(states.isEmpty());
+    }
+
+    @Test
+    public void timedOutQuery_lastResultOfSameQueryReturned() {
+        guard.fetch("a", 0, 2, () -> Arrays.asList("a", "ab"));
+        guard.size("a", () -> 2);
+
+        Assert.assertEquals(Arrays.asList("a", "ab"),
+                timingOut(() -> guard.fetch("a", 0, 2, hanging())));
+        Assert.assertEquals(2,
+                (int) timingOut(() -> guard.size("a", hanging())));
+        Assert.assertEquals(Collections.emptyList(),
+                timingOut(() -> guard.fetch("a", 2, 2, hanging())));
+    }
+
+    @Test
+    public void failedQuery_emptyResultWithoutCache() {
+        Assert.assertEquals(0, guard.size("b", failing()));
+        Assert.assertEquals(State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void consecutiveFailures_circuitOpened_providerNotQueried() {
+        guard.size("", failing());
+        timingOut(() -> guard.size("", hanging()));
+        Assert.assertEquals(State.CLOSED, guard.getState());
+        guard.size("", failing());
+        Assert.assertEquals(State.OPEN, guard.getState());
+        Assert.assertEquals(Collections.singletonList(State.OPEN), states);
+
+        AtomicInteger queries = new AtomicInteger();
+        guard.millis += FetchGuard.OPEN_MILLIS - 1;
+        Assert.assertEquals(0, guard.size("", queries::incrementAndGet));
+        Assert.assertEquals(0, queries.get());
+    }
+
+    @Test
+    public void successBetweenFailures_circuitStaysClosed() {
+        guard.size("", failing());
+        guard.size("", failing());
+        guard.size("", () -> 1);
+        guard.size("", failing());
+        guard.size("", failing());
+        Assert.assertEquals(State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void openCircuit_closedWhenProviderRecovers() {
+        for (int i = 0; i < FetchGuard.FAILURE_THRESHOLD; i++) {
+            guard.size("", failing());
+        }
+
+        guard.millis += FetchGuard.OPEN_MILLIS;
+        Assert.assertEquals(5, guard.size("", () -> 5));
+        Assert.assertEquals(State.CLOSED, guard.getState());
+        Assert.assertEquals(
+                Arrays.asList(State.OPEN, State.HALF_OPEN, State.CLOSED),
+                states);
+    }
+
+    @Test
+    public void openCircuit_reopenedWhenTrialFails() {
+        for (int i = 0; i < FetchGuard.FAILURE_THRESHOLD; i++) {
+            guard.size("", failing());
+        }
+
+        guard.millis += FetchGuard.OPEN_MILLIS;
+        guard.size("", failing());
+        Assert.assertEquals(State.OPEN, guard.getState());
+        Assert.assertEquals(
+                Arrays.asList(State.OPEN, State.HALF_OPEN, State.OPEN),
+                states);
+    }
+
+    @Test
+    public void query_runWithoutCurrentUi() {
+        UI.setCurrent(new UI());
+
+        AtomicReference<UI> queryUi = new AtomicReference<>(new UI());
+        guard.size("", () -> {
+            queryUi.set(UI.getCurrent());
+            return 1;
+        });
+        Assert.assertNull(queryUi.get());
+    }
+
+    @Test
+    public void tooManyRunningQueries_queryFailsRightAway() {
+        guard.size("", () -> 1);
+        // Each query keeps its thread after timing out
+        for (int i = 0; i < FetchGuard.MAX_THREADS; i++) {
+            new TestGuard(new ArrayList<>(), SHORT_TIMEOUT).size("", () -> {
+                while (released.getCount() > 0) {
+                    try {
+                        released.await();
+                    } catch (InterruptedException e) {
+                        // Ignored like e.g. by a JDBC query
+                    }
+                }
+                return null;
+            });
+        }
+
+        AtomicInteger queries = new AtomicInteger();
+        Assert.assertEquals(1, guard.size("", queries::incrementAndGet));
+        Assert.assertEquals(0, queries.get());
+    }
+
+    @Test
+    public void clear_cachedResultsForgotten() {
+        guard.size("", () -> 3);
+        guard.clear();
+        Assert.assertEquals(0,
+                (int) timingOut(() -> guard.size("", hanging())));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.combobox.ComboBox.ItemFilter;
+import com.vaadin.flow.data.provider.DataProvider;
+import com.vaadin.flow.data.provider.ListDataProvider;
+
+public class IncrementalItemFilterTest {
+
+    private AtomicInteger tests = new AtomicInteger();
+    private ItemFilter<String> itemFilter = (item, filterText) -> {
+        tests.incrementAndGet();
+        return item.contains(filterText);
+    };
+    private ListDataProvider<String> dataProvider = DataProvider
+            .ofCollection(Arrays.asList("abc", "abd", "xab", "bcd", "abcd"));
+    private IncrementalItemFilter<String> filter = new IncrementalItemFilter<>(
+            dataProvider,
+            filterText -> item -> itemFilter.test(item, filterText));
+
+    @Test
+    public void extendedFilter_onlyPreviousMatchesTested() {
+        Assert.assertEquals(Arrays.asList("abc", "abd", "xab", "abcd"),
+                filter.filter("ab"));
+        Assert.assertEquals(5, tests.getAndSet(0));
+
+        Assert.assertEquals(Arrays.asList("abc", "abcd"),
+                filter.filter("abc"));
+        Assert.assertEquals(4, tests.getAndSet(0));
+    }
+
+    @Test
+    public void sameFilter_noItemsTested() {
+        filter.filter("ab");
+        tests.set(0);
+
+        filter.filter("ab");
+        Assert.assertEquals(0, tests.get());
+    }
+
+    @Test
+    public void unrelatedFilter_allItemsTested() {
+        filter.filter("ab");
+        tests.set(0);
+
+        Assert.assertEquals(Arrays.asList("abc", "bcd", "abcd"),
+                filter.filter("bc"));
+        Assert.assertEquals(5, tests.get());
+    }
+
+    @Test
+    public void shortenedFilter_allItemsTested() {
+        filter.filter("abc");
+        tests.set(0);
+
+        Assert.assertEquals(4, filter.filter("ab").size());
+        Assert.assertEquals(5, tests.get());
+    }
+
+    @Test
+    public void clear_allItemsTestedAgain() {
+        filter.filter("ab");
+        tests.set(0);
+
+        filter.clear();
+        filter.filter("abc");
+        Assert.assertEquals(5, tests.get());
+    }
+
+    @Test
+    public void dataProviderFilterAndSorting_applied() {
+        dataProvider.setFilter(item -> !item.startsWith("x"));
+        dataProvider.setSortComparator(
+                Collections.reverseOrder(String::compareTo)::compare);
+
+        Assert.assertEquals(Arrays.asList("abd", "abcd", "abc"),
+                filter.filter("ab"));
+    }
+
+    @Test
+    public void parallelThreshold_sameItemsInSameOrder() {
+        List<String> items = IntStream.range(0, 100000)
+                .mapToObj(i -> "Item " + i).collect(Collectors.toList());
+        filter = new IncrementalItemFilter<>(DataProvider.ofCollection(items),
+                filterText -> item -> itemFilter.test(item, filterText));
+        filter.setParallelThreshold(1000);
+
+        Assert.assertEquals(expectedMatches(items, "7"), filter.filter("7"));
+        Assert.assertEquals(100000, tests.getAndSet(0));
+        Assert.assertEquals(expectedMatches(items, "71"),
+                filter.filter("71"));
+        Assert.assertEquals(expectedMatches(items, "7").size(), tests.get());
+    }
+
+    @Test
+    public void parallelThreshold_dataProviderFilterAndSortingApplied() {
+        dataProvider.setFilter(item -> !item.startsWith("x"));
+        dataProvider.setSortComparator(
+                Collections.reverseOrder(String::compareTo)::compare);
+        filter.setParallelThreshold(1);
+
+        Assert.assertEquals(Arrays.asList("abd", "abcd", "abc"),
+                filter.filter("ab"));
+    }
+
+    private static List<String> expectedMatches(List<String> items,
+            String filterText) {
+        return items.stream().filter(item -> item.contains(filterText))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+
+public class ItemsResourceTest {
+
+    private final byte[] content = "[{\"key\":\"fi\",\"label\":\"Finland\"}]"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ItemsResource resource = new ItemsResource();
+
+    private final Map<String, String> requestHeaders = new HashMap<>();
+    private final Map<String, String> responseHeaders = new HashMap<>();
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    private int status = 200;
+    private long cacheTime;
+
+    private boolean request(ItemsResource resource, String path)
+            throws IOException {
+        VaadinRequest request = (VaadinRequest) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                (proxy, method, args) -> {
+                    if ("getPathInfo".equals(method.getName())) {
+                        return path;
+                    } else if ("getHeader".equals(method.getName())) {
+                        return requestHeaders.get(args[0]);
+                    }
+                    return null;
+                });
+        VaadinResponse response = (VaadinResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[] { VaadinResponse.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "setHeader":
+                        responseHeaders.put((String) args[0],
+                                (String) args[1]);
+                        break;
+                    case "setStatus":
+                    case "sendError":
+                        status = (Integer) args[0];
+                        break;
+                    case "setCacheTime":
+                        cacheTime = (Long) args[0];
+                        break;
+                    case "getOutputStream":
+                        return responseBody;
+                    default:
+                    }
+                    return null;
+                });
+        return resource.handleRequest(null, request, response);
+    }
+
+    private boolean request(String version) throws IOException {
+        return request(resource, "/" + ItemsResource.getUrl(version));
+    }
+
+    @Test
+    public void version_dependsOnContentOnly() {
+        Assert.assertEquals(ItemsResource.getVersion(content),
+                ItemsResource.getVersion(content.clone()));
+        Assert.assertNotEquals(ItemsResource.getVersion(content),
+                ItemsResource.getVersion(
+                        "[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void url_sameInAllSessions() {
+        String version = resource.acquire(null, () -> content);
+
+        Assert.assertEquals(ItemsResource.getVersion(content), version);
+        Assert.assertEquals(
+                "VAADIN/dynamic/combobox-items/" + version + ".json",
+                ItemsResource.getUrl(version));
+        Assert.assertEquals(version,
+                new ItemsResource().acquire(null, () -> content.clone()));
+    }
+
+    @Test
+    public void acquiredItems_writtenWithETag_cachedLong() throws IOException {
+        String version = resource.acquire(null, () -> content);
+
+        Assert.assertTrue(request(version));
+        Assert.assertArrayEquals(content, responseBody.toByteArray());
+        Assert.assertEquals(200, status);
+        Assert.assertEquals('"' + version + '"',
+                responseHeaders.get("ETag"));
+        Assert.assertTrue(cacheTime >= 86_400_000);
+    }
+
+    @Test
+    public void matchingETag_notModified() throws IOException {
+        String version = resource.acquire(null, () -> content);
+        requestHeaders.put("If-None-Match", '"' + version + '"');
+
+        Assert.assertTrue(request(version));
+        Assert.assertEquals(0, responseBody.size());
+        Assert.assertEquals(304, status);
+    }
+
+    @Test
+    public void otherPath_notHandled() throws IOException {
+        Assert.assertFalse(request(resource, "/VAADIN/dynamic/resource/1"));
+        Assert.assertFalse(request(resource, null));
+    }
+
+    @Test
+    public void releasedItems_notFoundWhenNoReferencesLeft()
+            throws IOException {
+        String version = resource.acquire(null, () -> content);
+        resource.acquire(null, () -> content);
+
+        resource.release(version);
+        Assert.assertTrue(resource.isUsed(version));
+        resource.release(version);
+        Assert.assertFalse(resource.isUsed(version));
+
+        Assert.assertTrue(request(version));
+        Assert.assertEquals(404, status);
+        Assert.assertEquals(0, responseBody.size());
+    }
+
+    @Test
+    public void itemsOfOtherSession_notFound() throws IOException {
+        String version = new ItemsResource().acquire(null, () -> content);
+
+        Assert.assertTrue(request(version));
+        Assert.assertEquals(404, status);
+    }
+
+    @Test
+    public void givenVersionInUse_itemsNotGeneratedAgain() throws IOException {
+        String version = resource.acquire("countries-1", () -> content);
+
+        ItemsResource otherSession = new ItemsResource();
+        Assert.assertEquals(version,
+                otherSession.acquire("countries-1", () -> {
+                    throw new AssertionError("Shared items generated again");
+                }));
+        Assert.assertTrue(request(otherSession,
+                "/" + ItemsResource.getUrl(version)));
+        Assert.assertArrayEquals(content, responseBody.toByteArray());
+
+        Assert.assertNotEquals(version,
+                resource.acquire("countries-2", () -> content));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeysetPagerTest {
+
+    private List<String> fetches = new ArrayList<>();
+    private KeysetPager<Integer, Integer> pager = new KeysetPager<>(
+            this::fetchAfter, item -> item);
+
+    @Test
+    public void consecutivePages_fetchedAfterLastKey() {
+        Assert.assertEquals(range(0, 10), fetch("", 0, 10));
+        Assert.assertEquals(range(10, 20), fetch("", 10, 10));
+        Assert.assertEquals(range(20, 30), fetch("", 20, 10));
+
+        Assert.assertEquals(Arrays.asList(":null:10", ":9:10", ":19:10"),
+                fetches);
+    }
+
+    @Test
+    public void skippedPages_fetchedFromClosestBoundary() {
+        fetch("", 0, 10);
+        Assert.assertEquals(range(50, 60), fetch("", 50, 10));
+        // The boundaries on the way are remembered
+        Assert.assertEquals(range(30, 40), fetch("", 30, 10));
+
+        Assert.assertEquals(Arrays.asList(":null:10", ":9:50", ":29:10"),
+                fetches);
+    }
+
+    @Test
+    public void lastPage_partialPageReturned() {
+        Assert.assertEquals(range(990, 1000), fetch("", 990, 20));
+        Assert.assertEquals(range(0, 0), fetch("", 1000, 10));
+        Assert.assertEquals(":999:10", fetches.get(1));
+    }
+
+    @Test
+    public void filterChanged_boundariesForgotten() {
+        fetch("", 0, 10);
+        fetch("", 10, 10);
+        fetch("a", 10, 10);
+
+        Assert.assertEquals("a:null:20", fetches.get(2));
+    }
+
+    @Test
+    public void clear_boundariesForgotten() {
+        fetch("", 0, 10);
+        pager.clear();
+        fetch("", 10, 10);
+
+        Assert.assertEquals(":null:20", fetches.get(1));
+    }
+
+    @Test
+    public void preparedFetch_boundariesRememberedOnlyWhenLoaded() {
+        KeysetPager<Integer, Integer>.Fetch unloaded = pager.prepare("", 0,
+                10, 10);
+        pager.remember(unloaded);
+        KeysetPager<Integer, Integer>.Fetch stale = pager.prepare("", 0, 10,
+                10);
+        pager.clear();
+        stale.load();
+        pager.remember(stale);
+        fetch("", 10, 10);
+
+        Assert.assertEquals(Arrays.asList(":null:10", ":null:20"),
+                fetches);
+    }
+
+    @Test
+    public void distantPage_fetchedWithOffset() {
+        KeysetPager<Integer, Integer> offsetPager = new KeysetPager<>(
+                this::fetchAfter, item -> item, (filter, offset, limit) -> {
+                    fetches.add(filter + "@" + offset + ":" + limit);
+                    return IntStream.range(offset, offset + limit).boxed();
+                });
+
+        Assert.assertEquals(range(0, 10), offsetPager.fetch("", 0, 10, 10)
+                .collect(Collectors.toList()));
+        // A few pages away, fetched after the closest boundary
+        Assert.assertEquals(range(40, 50), offsetPager.fetch("", 40, 10, 10)
+                .collect(Collectors.toList()));
+        // Far away, fetched with the offset
+        Assert.assertEquals(range(900, 910),
+                offsetPager.fetch("", 900, 10, 10)
+                        .collect(Collectors.toList()));
+        // The next page is fetched after the remembered boundary
+        Assert.assertEquals(range(910, 920),
+                offsetPager.fetch("", 910, 10, 10)
+                        .collect(Collectors.toList()));
+
+        Assert.assertEquals(
+                Arrays.asList(":null:10", ":9:40", "@900:10", ":909:10"),
+                fetches);
+    }
+
+    private Stream<Integer> fetchAfter(String filter, Integer lastKey,
+            int limit) {
+        fetches.add(filter + ":" + lastKey + ":" + limit);
+        int first = lastKey == null ? 0 : lastKey + 1;
+        return IntStream.range(first, Math.min(first + limit, 1000)).boxed();
+    }
+
+    private List<Integer> fetch(String filter, int offset, int limit) {
+        return pager.fetch(filter, offset, limit, 10)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> range(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+}
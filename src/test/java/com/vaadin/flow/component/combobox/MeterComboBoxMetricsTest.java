@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.flow.component.UI;
+
+public class MeterComboBoxMetricsTest {
+
+    private static class TestMetrics extends MeterComboBoxMetrics {
+        private Map<String, Integer> timerCounts = new HashMap<>();
+        private Map<String, Long> counters = new HashMap<>();
+
+        @Override
+        protected void recordTimer(String name, long nanos) {
+            Assert.assertTrue(nanos >= 0);
+            timerCounts.merge(name, 1, Integer::sum);
+        }
+
+        @Override
+        protected void incrementCounter(String name, long amount) {
+            counters.merge(name, amount, Long::sum);
+        }
+
+        private int timerCount(String name) {
+            return timerCounts.getOrDefault(name, 0);
+        }
+
+        private long counter(String name) {
+            return counters.getOrDefault(name, 0L);
+        }
+
+        private void clear() {
+            timerCounts.clear();
+            counters.clear();
+        }
+    }
+
+    private ComboBox<String> comboBox;
+    private TestMetrics metrics = new TestMetrics();
+
+    @Before
+    public void setup() {
+        comboBox = new ComboBox<>();
+        comboBox.setMetrics(metrics);
+        comboBox.setItems(IntStream.range(0, 1000).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList()));
+    }
+
+    @After
+    public void tearDown() {
+        UI.setCurrent(null);
+    }
+
+    @Test
+    public void open_fetchAndPushRecorded() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        metrics.clear();
+
+        recorder.open();
+
+        Assert.assertEquals(1,
+                metrics.timerCount(MeterComboBoxMetrics.FETCH));
+        Assert.assertEquals(50,
+                metrics.counter(MeterComboBoxMetrics.FETCHED_ITEMS));
+        Assert.assertEquals(50,
+                metrics.counter(MeterComboBoxMetrics.PUSHED_ITEMS));
+        Assert.assertTrue(
+                metrics.counter(MeterComboBoxMetrics.PUSHED_BYTES) > 50 * 10);
+        Assert.assertEquals(1,
+                metrics.timerCount(MeterComboBoxMetrics.COMMIT));
+        Assert.assertEquals(0,
+                metrics.counter(MeterComboBoxMetrics.FILTER_CHANGES));
+    }
+
+    @Test
+    public void type_filterChangesCounted() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        metrics.clear();
+
+        recorder.type("1");
+        recorder.scrollTo(1);
+        recorder.type("12");
+
+        Assert.assertEquals(2,
+                metrics.counter(MeterComboBoxMetrics.FILTER_CHANGES));
+    }
+
+    @Test
+    public void requestRateLimit_throttledRequestsCounted() {
+        comboBox.setRequestRateLimit(1);
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        metrics.clear();
+
+        recorder.open();
+        recorder.scrollTo(1);
+        recorder.scrollTo(2);
+
+        Assert.assertEquals(2,
+                metrics.counter(MeterComboBoxMetrics.THROTTLED_REQUESTS));
+    }
+
+    @Test
+    public void refreshAll_sizeQueriedAndResetCounted() {
+        ComboBoxPayloadRecorder recorder = new ComboBoxPayloadRecorder(
+                comboBox);
+        recorder.open();
+        metrics.clear();
+
+        comboBox.getDataProvider().refreshAll();
+
+        Assert.assertEquals(1, metrics.counter(MeterComboBoxMetrics.RESETS));
+        Assert.assertEquals(1, metrics.timerCount(MeterComboBoxMetrics.SIZE));
+
+        recorder.open();
+        Assert.assertEquals(2, metrics.timerCount(MeterComboBoxMetrics.SIZE));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class NormalizedLabelsTest {
+
+    @Test
+    public void normalize_accentsAndCaseRemoved() {
+        Assert.assertEquals("zurich",
+                NormalizedLabels.normalize("Zürich", Locale.ENGLISH));
+        Assert.assertEquals("geneve",
+                NormalizedLabels.normalize("GENÈVE", Locale.ENGLISH));
+        Assert.assertEquals("sao paulo",
+                NormalizedLabels.normalize("São Paulo", Locale.ENGLISH));
+    }
+
+    @Test
+    public void normalize_localeUsedForCase() {
+        Assert.assertEquals("ıstanbul",
+                NormalizedLabels.normalize("ISTANBUL", new Locale("tr")));
+    }
+
+    @Test
+    public void getKey_labelsGeneratedOnce() {
+        AtomicInteger labels = new AtomicInteger();
+        NormalizedLabels<String> normalizedLabels = new NormalizedLabels<>(
+                Arrays.asList("Zürich", "Genève"), item -> {
+                    labels.incrementAndGet();
+                    return item;
+                }, Locale.ENGLISH);
+        Assert.assertEquals(2, labels.getAndSet(0));
+
+        Assert.assertEquals("zurich", normalizedLabels.getKey("Zürich"));
+        Assert.assertEquals("geneve", normalizedLabels.getKey("Genève"));
+        Assert.assertEquals(0, labels.get());
+    }
+
+    @Test
+    public void getKey_unknownItem_labelNormalized() {
+        NormalizedLabels<String> normalizedLabels = new NormalizedLabels<>(
+                Arrays.asList("Zürich"), item -> item, Locale.ENGLISH);
+
+        Assert.assertEquals("bern", normalizedLabels.getKey("Bérn"));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryTracerTest {
+
+    private ComboBox<String> comboBox = new ComboBox<>();
+
+    @Test
+    public void formatFetch_allFieldsIncluded() {
+        comboBox.setId("country");
+        Assert.assertEquals(
+                "query=fetch id=\"country\" filter=\"fin\" offset=50 limit=100 count=2 nanos=1234",
+                QueryTracer.format(comboBox, QueryTracer.FETCH, "fin", 50,
+                        100, 2, 1234));
+    }
+
+    @Test
+    public void formatSize_noRange() {
+        Assert.assertEquals("query=size filter=null count=1000 nanos=42",
+                QueryTracer.format(comboBox, QueryTracer.SIZE, null, 0, 0,
+                        1000, 42));
+    }
+
+    @Test
+    public void formatRequest_noResult() {
+        Assert.assertEquals("query=request filter=\"\" offset=0 limit=50",
+                QueryTracer.format(comboBox, QueryTracer.REQUEST, "", 0, 50,
+                        0, 0));
+    }
+
+    @Test
+    public void formatFilterWithQuotes_escaped() {
+        Assert.assertEquals(
+                "query=request filter=\"a \\\"b\\\"\" offset=0 limit=50",
+                QueryTracer.format(comboBox, QueryTracer.REQUEST, "a \"b\"",
+                        0, 50, 0, 0));
+    }
+}
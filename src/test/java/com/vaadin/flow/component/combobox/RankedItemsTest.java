@@ -0,0 +1,86 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RankedItemsTest {
+
+    @Test
+    public void rank_prefixWordPrefixAndSubstring() {
+        Assert.assertEquals(RankedItems.PREFIX,
+                RankedItems.rank("bernalillo", "bern"));
+        Assert.assertEquals(RankedItems.WORD_PREFIX,
+                RankedItems.rank("new bern", "bern"));
+        Assert.assertEquals(RankedItems.WORD_PREFIX,
+                RankedItems.rank("eberndorf near bern", "bern"));
+        Assert.assertEquals(RankedItems.SUBSTRING,
+                RankedItems.rank("eberndorf", "bern"));
+    }
+
+    @Test
+    public void rank_uncasedLettersAndDigitsContinueWord() {
+        // Same labels as in ranked-filtering-test.js of the connector
+        Assert.assertEquals(RankedItems.SUBSTRING,
+                RankedItems.rank("\u4e2d\u6587", "\u6587"));
+        Assert.assertEquals(RankedItems.SUBSTRING,
+                RankedItems.rank("\u05e9\u6587", "\u6587"));
+        Assert.assertEquals(RankedItems.SUBSTRING,
+                RankedItems.rank("\u0663\u6587", "\u6587"));
+        Assert.assertEquals(RankedItems.WORD_PREFIX,
+                RankedItems.rank("\u4e2d \u6587", "\u6587"));
+    }
+
+    @Test
+    public void top_bestRankedInOriginalOrder() {
+        List<String> items = Arrays.asList("c2", "a1", "b2", "a2", "b1",
+                "c1");
+
+        Assert.assertEquals(Arrays.asList("a1", "a2", "b2"), RankedItems
+                .top(items, item -> item.charAt(0) - 'a', 3));
+    }
+
+    @Test
+    public void top_sameAsStableSort() {
+        Random random = new Random(42);
+        List<Integer> items = IntStream.range(0, 10000)
+                .mapToObj(i -> random.nextInt(1000))
+                .collect(Collectors.toList());
+        List<Integer> sorted = items.stream()
+                .sorted(Comparator.comparingInt(item -> item % 3))
+                .collect(Collectors.toList());
+
+        for (int count : new int[] { 1, 50, 3333, 10000, 20000 }) {
+            Assert.assertEquals(
+                    sorted.subList(0, Math.min(count, sorted.size())),
+                    RankedItems.top(items, item -> item % 3, count));
+        }
+    }
+
+    @Test
+    public void top_zeroCount_noItems() {
+        Assert.assertEquals(0, RankedItems
+                .top(Arrays.asList("a", "b"), item -> 0, 0).size());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.data.provider.DataGenerator;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class RenderedComponentCacheTest {
+
+    private static class TestRendering implements DataGenerator<String> {
+
+        private List<String> destroyed = new ArrayList<>();
+        private int destroyAllCount;
+
+        @Override
+        public void generateData(String item, JsonObject jsonObject) {
+        }
+
+        @Override
+        public void destroyData(String item) {
+            destroyed.add(item);
+        }
+
+        @Override
+        public void destroyAllData() {
+            destroyAllCount++;
+        }
+    }
+
+    private TestRendering rendering = new TestRendering();
+    private ComboBoxKeyMapper<String> keyMapper = new ComboBoxKeyMapper<>();
+
+    @Test
+    public void cacheDisabled_allCallsAreForwarded() {
+        RenderedComponentCache<String> cache = new RenderedComponentCache<>(
+                rendering, keyMapper, 0);
+
+        cache.destroyData("foo");
+        cache.destroyAllData();
+
+        Assert.assertEquals(Collections.singletonList("foo"),
+                rendering.destroyed);
+        Assert.assertEquals(1, rendering.destroyAllCount);
+    }
+
+    @Test
+    public void cacheEnabled_destroyAllData_componentsAreKept() {
+        RenderedComponentCache<String> cache = new RenderedComponentCache<>(
+                rendering, keyMapper, 10);
+
+        cache.destroyAllData();
+
+        Assert.assertEquals(0, rendering.destroyAllCount);
+
+        cache.clear();
+        Assert.assertEquals(1, rendering.destroyAllCount);
+    }
+
+    @Test
+    public void cacheEnabled_generatedKeys_destroyDataIsForwarded() {
+        RenderedComponentCache<String> cache = new RenderedComponentCache<>(
+                rendering, keyMapper, 10);
+
+        cache.destroyData("foo");
+
+        Assert.assertEquals(Collections.singletonList("foo"),
+                rendering.destroyed);
+    }
+
+    @Test
+    public void cacheEnabled_itemIds_leastRecentlyUsedAreDestroyed() {
+        keyMapper.setItemIdProvider(item -> item);
+        RenderedComponentCache<String> cache = new RenderedComponentCache<>(
+                rendering, keyMapper, 2);
+
+        cache.destroyData("a");
+        cache.destroyData("b");
+        Assert.assertTrue(rendering.destroyed.isEmpty());
+
+        // "a" is active again, so it's no longer in the cache
+        cache.generateData("a", Json.createObject());
+        cache.destroyData("c");
+        cache.destroyData("d");
+
+        Assert.assertEquals(Collections.singletonList("b"),
+                rendering.destroyed);
+
+        cache.setCacheSize(0);
+        Assert.assertEquals(1, rendering.destroyAllCount);
+    }
+
+    @Test
+    public void setCacheSize_smaller_componentsAreDestroyed() {
+        keyMapper.setItemIdProvider(item -> item);
+        RenderedComponentCache<String> cache = new RenderedComponentCache<>(
+                rendering, keyMapper, 3);
+        cache.destroyData("a");
+        cache.destroyData("b");
+        cache.destroyData("c");
+
+        cache.setCacheSize(1);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), rendering.destroyed);
+    }
+}
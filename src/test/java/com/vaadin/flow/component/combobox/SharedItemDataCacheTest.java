@@ -0,0 +1,129 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.data.provider.DataGenerator;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class SharedItemDataCacheTest {
+
+    private final AtomicInteger generated = new AtomicInteger();
+    private final DataGenerator<String> generator = (item, jsonObject) -> {
+        generated.incrementAndGet();
+        jsonObject.put("label", item.toUpperCase());
+    };
+
+    private final SharedItemDataCache<String> cache = new SharedItemDataCache<>(
+            2);
+
+    private JsonObject generate(String item) {
+        JsonObject jsonObject = Json.createObject();
+        jsonObject.put("key", "1");
+        cache.generateData(item, jsonObject, generator);
+        return jsonObject;
+    }
+
+    @Test
+    public void sameItem_generatedOnce() {
+        JsonObject first = generate("fi");
+        JsonObject second = generate("fi");
+
+        Assert.assertEquals(1, generated.get());
+        Assert.assertEquals("FI", first.getString("label"));
+        Assert.assertEquals("FI", second.getString("label"));
+        Assert.assertEquals("1", second.getString("key"));
+    }
+
+    @Test
+    public void cachedData_notModifiedByCallers() {
+        generate("fi").put("key", "2");
+
+        Assert.assertFalse(generate("fi").getString("key").equals("2"));
+        Assert.assertEquals(1, generated.get());
+    }
+
+    @Test
+    public void full_furtherItemsGeneratedEachTime() {
+        generate("fi");
+        generate("se");
+        generate("no");
+        generate("no");
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(4, generated.get());
+        Assert.assertEquals("NO", generate("no").getString("label"));
+    }
+
+    @Test
+    public void verify_sameGenerator_cachedDataChecked() {
+        Assert.assertFalse(cache.verify("fi", generator));
+        generate("fi");
+        Assert.assertTrue(cache.verify("fi", generator));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void verify_differentGenerator_throws() {
+        generate("fi");
+        cache.verify("fi",
+                (item, jsonObject) -> jsonObject.put("label", item));
+    }
+
+    @Test
+    public void clear_generatedAgain() {
+        generate("fi");
+        cache.clear();
+        generate("fi");
+
+        Assert.assertEquals(2, generated.get());
+    }
+
+    @Test
+    public void deserialized_emptyCacheInUse()
+            throws IOException, ClassNotFoundException {
+        generate("fi");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cache);
+        }
+        @SuppressWarnings("unchecked")
+        SharedItemDataCache<String> deserialized = (SharedItemDataCache<String>) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        Assert.assertEquals(0, deserialized.size());
+        JsonObject jsonObject = Json.createObject();
+        deserialized.generateData("fi", jsonObject, generator);
+        Assert.assertEquals("FI", jsonObject.getString("label"));
+        Assert.assertEquals(1, deserialized.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroMaximumSize_throws() {
+        new SharedItemDataCache<String>(0);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.flow.component.combobox;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    private static class TestBucket extends TokenBucket {
+        private long nanos;
+
+        private TestBucket(int tokensPerSecond) {
+            super(tokensPerSecond);
+        }
+
+        @Override
+        long nanoTime() {
+            return nanos;
+        }
+
+        private void advanceMillis(long millis) {
+            nanos += millis * 1_000_000;
+        }
+    }
+
+    private TestBucket bucket = new TestBucket(4);
+
+    @Test
+    public void burst_upToRateAcquired() {
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(bucket.tryAcquire());
+        }
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void emptyBucket_refilledAtRate() {
+        for (int i = 0; i < 4; i++) {
+            bucket.tryAcquire();
+        }
+
+        bucket.advanceMillis(200);
+        Assert.assertFalse(bucket.tryAcquire());
+        bucket.advanceMillis(50);
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void longPause_refilledUpToRate() {
+        bucket.advanceMillis(60_000);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(bucket.tryAcquire());
+        }
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void clockGoesBack_notRefilled() {
+        bucket.advanceMillis(10_000);
+        for (int i = 0; i < 4; i++) {
+            bucket.tryAcquire();
+        }
+
+        bucket.advanceMillis(-5_000);
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+}
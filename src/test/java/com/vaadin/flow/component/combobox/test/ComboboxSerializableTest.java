@@ -1,6 +1,15 @@
 package com.vaadin.flow.component.combobox.test;
 
+import java.util.stream.Stream;
+
 import com.vaadin.flow.testutil.ClassesSerializableTest;
 
 public class ComboboxSerializableTest extends ClassesSerializableTest {
+
+    @Override
+    protected Stream<String> getExcludedPatterns() {
+        return Stream.concat(super.getExcludedPatterns(), Stream.of(
+                "com\\.vaadin\\.flow\\.component\\.combobox\\.QueryTracer",
+                "com\\.vaadin\\.flow\\.component\\.combobox\\.RankedItems"));
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Loads comboBoxConnector.js in plain Node.js without a browser, with a stub
+ * <vaadin-combo-box> which only keeps the state the connector touches. Used
+ * by the connector tests and benchmarks.
+ */
+const fs = require('fs');
+const path = require('path');
+const vm = require('vm');
+
+const CONNECTOR = path.join(__dirname,
+  '../../main/resources/META-INF/resources/frontend/comboBoxConnector.js');
+const PAGE_SIZE = 50;
+
+/*
+ * Creates a window with the connector loaded. The given globals, e.g. stubs
+ * of browser APIs, are added to the window.
+ */
+const createContext = function (globals) {
+  const context = Object.assign({}, globals);
+  context.window = context;
+  context.Vaadin = {
+    Flow: {},
+    ComboBoxPlaceholder: function () {}
+  };
+  context.Polymer = {
+    Debouncer: {
+      // Run debounced callbacks right away
+      debounce: (debouncer, async, callback) => callback()
+    },
+    Async: { timeOut: { after: () => undefined } }
+  };
+  vm.createContext(context);
+  vm.runInContext(fs.readFileSync(CONNECTOR, 'utf8'), context,
+    { filename: CONNECTOR });
+  return context;
+};
+
+/*
+ * Creates a combo box with the connector initialized. The given server
+ * methods replace the no-op defaults, and the given attributes are returned
+ * by getAttribute.
+ */
+const createComboBox = function (context, server, attributes) {
+  const comboBox = {
+    pageSize: PAGE_SIZE,
+    size: 0,
+    filter: '',
+    filteredItems: [],
+    $server: Object.assign({
+      setRequestedRange: () => {},
+      setRequestedRangeAndConfirmUpdates: () => {},
+      resetRequestedRange: () => {},
+      confirmUpdate: () => {},
+      confirmUpdates: () => {}
+    }, server),
+    set: function (path, value) {
+      // Only 'filteredItems.<index>' paths are used by the connector
+      this.filteredItems[parseInt(path.substring(14))] = value;
+    },
+    clearCache: () => {},
+    getAttribute: name => attributes && name in attributes
+      ? attributes[name] : null,
+    _getItemLabel: item => item.label
+  };
+  context.window.Vaadin.Flow.comboBoxConnector.initLazy(comboBox);
+  return comboBox;
+};
+
+const createItems = function (start, count) {
+  const items = [];
+  for (let i = start; i < start + count; i++) {
+    items.push({ key: String(i), label: 'Item ' + i });
+  }
+  return items;
+};
+
+const tests = [];
+
+/*
+ * Registers a test, run by run-tests.js.
+ */
+const test = function (name, run) {
+  tests.push({ name: name, run: run });
+};
+
+module.exports = {
+  PAGE_SIZE: PAGE_SIZE,
+  createContext: createContext,
+  createComboBox: createComboBox,
+  createItems: createItems,
+  test: test,
+  tests: tests
+};
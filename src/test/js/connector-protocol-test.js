@@ -0,0 +1,151 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Runs the scenarios of connector-protocol.json against the connector, with a
+ * stub server answering each request like the combo box does. The same
+ * scenarios are run against ComboBoxPayloadRecorder by
+ * ConnectorProtocolTest.java, so that the recorder keeps behaving like the
+ * connector.
+ */
+const assert = require('assert');
+const fs = require('fs');
+const path = require('path');
+const {
+  createContext,
+  createComboBox,
+  createItems,
+  test
+} = require('./connector-harness');
+
+const SIZE = 1000;
+
+const scenarios = JSON.parse(fs.readFileSync(
+  path.join(__dirname, '../resources/connector-protocol.json'), 'utf8'))
+  .scenarios;
+
+const run = function (scenario) {
+  // Timers and debouncers only run when a step says so
+  const timers = new Map();
+  let timerId = 0;
+  const runTimers = () => {
+    const callbacks = Array.from(timers.values());
+    timers.clear();
+    callbacks.forEach(callback => callback());
+  };
+  const context = createContext({
+    setTimeout: callback => {
+      timers.set(++timerId, callback);
+      return timerId;
+    },
+    clearTimeout: id => timers.delete(id)
+  });
+  let debouncer;
+  context.Polymer.Debouncer.debounce = (previous, async, callback) => {
+    if (previous) {
+      previous.cancel();
+    }
+    debouncer = { callback: callback, cancel: () => debouncer = undefined };
+    return debouncer;
+  };
+  const runDebouncer = () => {
+    if (debouncer) {
+      const callback = debouncer.callback;
+      debouncer = undefined;
+      callback();
+    }
+  };
+
+  // The calls to the server, and the responses to send after each step
+  const calls = [];
+  const responses = [];
+  let throttling = false;
+  let updateId = 0;
+  let comboBox;
+  const respond = function (start, length) {
+    if (throttling) {
+      responses.push(() => comboBox.$connector
+        .throttled(Math.ceil(1000 / scenario.requestRateLimit)));
+      return;
+    }
+    responses.push(() => {
+      comboBox.$connector.updateSize(SIZE);
+      comboBox.$connector.set(start,
+        createItems(start, Math.min(length, SIZE - start)));
+      comboBox.$connector.confirm(++updateId);
+    });
+  };
+  const sendResponses = () => responses.splice(0)
+    .forEach(response => response());
+
+  comboBox = createComboBox(context, {
+    setRequestedRange: (start, length, filter) => {
+      calls.push(['setRequestedRange', start, length, filter]);
+      respond(start, length);
+    },
+    resetRequestedRange: (start, length, filter) => {
+      calls.push(['resetRequestedRange', start, length, filter]);
+      respond(start, length);
+    },
+    setRequestedRangeAndConfirmUpdates: (start, length, filter, ids) => {
+      calls.push(['setRequestedRangeAndConfirmUpdates', start, length, filter,
+        ids.length]);
+      respond(start, length);
+    },
+    confirmUpdate: () => calls.push(['confirmUpdate']),
+    confirmUpdates: ids => calls.push(['confirmUpdates', ids.length])
+  });
+  comboBox._deferUpdateConfirmation = !!scenario.deferUpdateConfirmation;
+
+  // The response to attaching the combo box
+  comboBox.$connector.confirm(++updateId);
+
+  const requestPage = page => comboBox.dataProvider(
+    { page: page, pageSize: comboBox.pageSize, filter: comboBox.filter },
+    () => {});
+  scenario.steps.forEach(step => {
+    throttling = !!step.throttled;
+    switch (step.action) {
+      case 'open':
+        requestPage(0);
+        break;
+      case 'scrollTo':
+        requestPage(step.argument);
+        break;
+      case 'type':
+        comboBox.filter = step.argument;
+        requestPage(0);
+        runDebouncer();
+        break;
+      case 'typeWithinDebounceTimeout':
+        comboBox.filter = step.argument;
+        requestPage(0);
+        break;
+      case 'retryThrottledRequest':
+      case 'sendPendingConfirmations':
+        runTimers();
+        break;
+      default:
+        throw new Error('Unknown action ' + step.action);
+    }
+    sendResponses();
+  });
+  return calls;
+};
+
+scenarios.forEach(scenario => test('protocol_' + scenario.name, () => {
+  assert.deepStrictEqual(run(scenario), scenario.calls);
+}));
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Tests of the item lists loaded as a resource and persisted in IndexedDB.
+ */
+const assert = require('assert');
+const {
+  PAGE_SIZE,
+  createContext,
+  createComboBox,
+  createItems,
+  test
+} = require('./connector-harness');
+
+/*
+ * A browser with an in-memory IndexedDB and XMLHttpRequest, having only the
+ * parts the connector uses. Their events are queued like in a browser, and
+ * fired by flush().
+ */
+const createBrowser = function (resources) {
+  const queue = [];
+  const later = task => queue.push(task);
+  const flush = () => {
+    while (queue.length) {
+      queue.shift()();
+    }
+  };
+
+  // Database name -> store name -> Map of the values by their key
+  const databases = {};
+  const connections = [];
+  let blocked = false;
+  let blockedOpens = [];
+
+  const createTransaction = function (connection, store, mode) {
+    let pending = 0;
+    let finished = false;
+    const transaction = {};
+    const finishIfDone = () => {
+      if (pending === 0 && !finished) {
+        finished = true;
+        connection.transactions--;
+        if (transaction.oncomplete) {
+          transaction.oncomplete();
+        }
+        connection.closeIfDone();
+      }
+    };
+    const request = function (operation, write) {
+      assert(!write || mode === 'readwrite', 'Write in a read transaction');
+      const result = {};
+      pending++;
+      later(() => {
+        result.result = operation();
+        pending--;
+        if (result.onsuccess) {
+          result.onsuccess();
+        }
+        finishIfDone();
+      });
+      return result;
+    };
+    connection.transactions++;
+    transaction.objectStore = () => ({
+      get: key => request(() => store.get(key)),
+      put: value => request(() => store.set(value.version, value), true),
+      delete: key => request(() => store.delete(key), true),
+      openCursor: () => {
+        const result = {};
+        let entries;
+        let index = 0;
+        const next = () => later(() => {
+          if (!entries) {
+            entries = Array.from(store.values());
+          }
+          result.result = index < entries.length ? {
+            value: entries[index++],
+            continue: next
+          } : null;
+          if (!result.result) {
+            pending--;
+          }
+          result.onsuccess();
+          finishIfDone();
+        });
+        pending++;
+        next();
+        return result;
+      }
+    });
+    return transaction;
+  };
+
+  const createConnection = function (database) {
+    const connection = {
+      closing: false,
+      closed: false,
+      transactions: 0,
+      createObjectStore: name => database[name] = new Map(),
+      transaction: (storeName, mode) => {
+        assert(!connection.closing, 'Transaction in a closing connection');
+        return createTransaction(connection, database[storeName], mode);
+      },
+      close: () => {
+        connection.closing = true;
+        connection.closeIfDone();
+      },
+      // Closed when its transactions are done, like in a browser
+      closeIfDone: () => {
+        if (connection.closing && connection.transactions === 0) {
+          connection.closed = true;
+        }
+      }
+    };
+    connections.push(connection);
+    return connection;
+  };
+
+  const opened = function (request, name) {
+    let database = databases[name];
+    const upgrade = !database;
+    if (upgrade) {
+      database = databases[name] = {};
+    }
+    request.result = createConnection(database);
+    if (upgrade) {
+      request.onupgradeneeded();
+    }
+    request.onsuccess();
+  };
+
+  const indexedDB = {
+    open: (name, version) => {
+      assert.strictEqual(version, 1);
+      const request = {};
+      later(() => {
+        if (blocked) {
+          request.onblocked();
+          blockedOpens.push(() => opened(request, name));
+        } else {
+          opened(request, name);
+        }
+      });
+      return request;
+    }
+  };
+
+  const requests = [];
+  const XMLHttpRequest = function () {
+    this.open = (method, url) => this.url = url;
+    this.send = () => {
+      requests.push(this.url);
+      later(() => {
+        this.status = 200;
+        this.responseText = JSON.stringify(resources[this.url]);
+        this.onload();
+      });
+    };
+  };
+
+  let now = 0;
+  return {
+    globals: {
+      indexedDB: indexedDB,
+      XMLHttpRequest: XMLHttpRequest,
+      // Each version is stored at a different time
+      Date: { now: () => ++now }
+    },
+    flush: flush,
+    runNext: () => queue.shift()(),
+    requests: requests,
+    storedVersions: () => Array.from(databases['vaadin-combo-box-items']
+      .items.keys()).sort(),
+    openConnections: () => connections.filter(c => !c.closed).length,
+    // Connections which would block another tab from upgrading
+    blockingConnections: () => connections.filter(c => !c.closing).length,
+    versionChange: () => connections.filter(c => !c.closing)
+      .forEach(c => c.onversionchange()),
+    block: () => blocked = true,
+    unblock: () => {
+      blocked = false;
+      blockedOpens.forEach(later);
+      blockedOpens = [];
+    }
+  };
+};
+
+const url = version => 'VAADIN/dynamic/combobox-items/' + version + '.json';
+
+const resources = {};
+for (let version = 1; version <= 7; version++) {
+  resources[url(version)] = createItems(version * 100, 10);
+}
+
+/*
+ * Opens a combo box loading the given version of the items, in a new page
+ * of the browser.
+ */
+const open = function (browser, version) {
+  const comboBox = createComboBox(createContext(browser.globals), {}, {
+    'items-url': url(version),
+    'items-version': String(version)
+  });
+  const pages = [];
+  comboBox.dataProvider({ page: 0, pageSize: PAGE_SIZE, filter: '' },
+    items => pages.push(items));
+  browser.flush();
+  return pages;
+};
+
+const labels = items => Array.from(items, item => item.label);
+
+test('persistedItems_readWithoutRequest', () => {
+  const browser = createBrowser(resources);
+  assert.deepStrictEqual(open(browser, 1).map(labels),
+    [labels(resources[url(1)])]);
+
+  assert.deepStrictEqual(open(browser, 1).map(labels),
+    [labels(resources[url(1)])]);
+  assert.deepStrictEqual(browser.requests, [url(1)]);
+});
+
+test('newVersion_requestedAndPersisted', () => {
+  const browser = createBrowser(resources);
+  open(browser, 1);
+
+  assert.deepStrictEqual(open(browser, 2).map(labels),
+    [labels(resources[url(2)])]);
+  assert.deepStrictEqual(browser.requests, [url(1), url(2)]);
+  assert.deepStrictEqual(browser.storedVersions(), ['1', '2']);
+});
+
+test('persistedItems_onlyLatestVersionsKept', () => {
+  const browser = createBrowser(resources);
+  for (let version = 1; version <= 7; version++) {
+    open(browser, version);
+  }
+
+  assert.deepStrictEqual(browser.storedVersions(),
+    ['3', '4', '5', '6', '7']);
+});
+
+test('readAndPersist_connectionsClosed', () => {
+  const browser = createBrowser(resources);
+  open(browser, 1);
+  open(browser, 1);
+
+  assert.strictEqual(browser.openConnections(), 0);
+});
+
+test('versionChange_connectionClosedRightAway', () => {
+  const browser = createBrowser(resources);
+  const comboBox = createComboBox(createContext(browser.globals), {}, {
+    'items-url': url(1),
+    'items-version': '1'
+  });
+  comboBox.dataProvider({ page: 0, pageSize: PAGE_SIZE, filter: '' },
+    () => {});
+  // The database is open and being read
+  browser.runNext();
+  assert.strictEqual(browser.blockingConnections(), 1);
+
+  browser.versionChange();
+  assert.strictEqual(browser.blockingConnections(), 0);
+  browser.flush();
+  assert.strictEqual(browser.openConnections(), 0);
+});
+
+test('blockedDatabase_itemsRequestedMeanwhile', () => {
+  const browser = createBrowser(resources);
+  browser.block();
+  assert.deepStrictEqual(open(browser, 1).map(labels),
+    [labels(resources[url(1)])]);
+  assert.deepStrictEqual(browser.requests, [url(1)]);
+
+  browser.unblock();
+  browser.flush();
+  assert.strictEqual(browser.openConnections(), 0);
+});
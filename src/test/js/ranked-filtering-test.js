@@ -0,0 +1,53 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Tests of ranking the items filtered in the client-side, which should rank
+ * the same as RankedItems on the server.
+ */
+const assert = require('assert');
+const { createContext, createComboBox, test } = require('./connector-harness');
+
+const filter = function (labels, filterText) {
+  const items = labels.map((label, i) => ({ key: String(i), label: label }));
+  const comboBox = createComboBox(createContext());
+  comboBox._clientSideFilter = true;
+  comboBox._rankedFilter = true;
+  comboBox.size = items.length;
+  comboBox.$connector.set(0, items);
+  comboBox.dataProvider({ page: 0, pageSize: comboBox.pageSize, filter: '' },
+    () => {});
+  comboBox.$connector.confirm(1);
+
+  let filtered;
+  comboBox.filter = filterText;
+  comboBox.dataProvider(
+    { page: 0, pageSize: comboBox.pageSize, filter: filterText },
+    result => filtered = result);
+  return Array.from(filtered, item => item.label);
+};
+
+test('rankedFiltering_prefixThenWordPrefixThenSubstring', () => {
+  assert.deepStrictEqual(filter(['xab', 'x ab', 'abx'], 'ab'),
+    ['abx', 'x ab', 'xab']);
+});
+
+test('rankedFiltering_uncasedLettersContinueWord', () => {
+  // Chinese, Hebrew and Arabic-Indic digits
+  assert.deepStrictEqual(
+    filter(['中文', 'ש文', '٣文', '中 文', '文字'], '文'),
+    ['文字', '中 文', '中文', 'ש文', '٣文']);
+});
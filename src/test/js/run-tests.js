@@ -0,0 +1,45 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+/*
+ * Runs the tests of comboBoxConnector.js, i.e. the *-test.js files next to
+ * this one, with plain Node.js: node src/test/js/run-tests.js [filter]
+ */
+const fs = require('fs');
+const path = require('path');
+const { tests } = require('./connector-harness');
+
+fs.readdirSync(__dirname)
+  .filter(file => file.endsWith('-test.js'))
+  .forEach(file => require(path.join(__dirname, file)));
+
+const nameFilter = process.argv[2];
+let failures = 0;
+let count = 0;
+tests.filter(test => !nameFilter || test.name.indexOf(nameFilter) > -1)
+  .forEach(test => {
+    count++;
+    try {
+      test.run();
+    } catch (e) {
+      failures++;
+      console.log('FAILED: ' + test.name);
+      console.log(e.stack);
+    }
+  });
+
+console.log('Tests run: ' + count + ', Failures: ' + failures);
+process.exitCode = failures > 0 ? 1 : 0;